@@ -1,11 +1,14 @@
 package ru.practicum.controllers.admin;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.event.EventFilterParamsDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.UpdateEventAdminRequest;
+import ru.practicum.enums.EventSort;
 import ru.practicum.service.AdminEventService;
+import ru.practicum.utils.EventCursor;
 
 import javax.validation.Valid;
 import java.util.List;
@@ -18,8 +21,16 @@ public class AdminEventController {
     private final AdminEventService service;
 
     @GetMapping
-    public List<EventFullDto> getByAdmin(@Valid EventFilterParamsDto params) {
-        return service.getEventsByAdmin(params);
+    public ResponseEntity<List<EventFullDto>> getByAdmin(@Valid EventFilterParamsDto params) {
+        List<EventFullDto> events = service.getEventsByAdmin(params);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        // В базе админский поиск упорядочен только по дате события
+        if (params.getSort() == EventSort.VIEWS) {
+            return response.body(events);
+        }
+        EventCursor.next(events, params.getSize(), EventSort.EVENT_DATE)
+                .ifPresent(cursor -> response.header(EventCursor.NEXT_CURSOR_HEADER, cursor));
+        return response.body(events);
     }
 
     @PatchMapping(value = "/{eventId}")
@@ -1,11 +1,13 @@
 package ru.practicum.controllers.pub;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.dto.event.EventFilterParamsDto;
 import ru.practicum.dto.event.EventFullDto;
 import ru.practicum.dto.event.EventShortDto;
 import ru.practicum.service.PublicEventService;
+import ru.practicum.utils.EventCursor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
@@ -18,8 +20,12 @@ public class PublicEventController {
     private final PublicEventService service;
 
     @GetMapping
-    public List<EventShortDto> get(@Valid EventFilterParamsDto params, HttpServletRequest request) {
-        return service.getEventsByPublic(params, request);
+    public ResponseEntity<List<EventShortDto>> get(@Valid EventFilterParamsDto params, HttpServletRequest request) {
+        List<EventShortDto> events = service.getEventsByPublic(params, request);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        EventCursor.next(events, params.getSize(), params.getSort())
+                .ifPresent(cursor -> response.header(EventCursor.NEXT_CURSOR_HEADER, cursor));
+        return response.body(events);
     }
 
     @GetMapping(value = "/{id}")
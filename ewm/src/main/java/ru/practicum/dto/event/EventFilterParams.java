@@ -24,4 +24,5 @@ public class EventFilterParams {
     private Boolean paid;
     private Boolean onlyAvailable;
     private EventSort sort;
+    private String cursor;
 }
@@ -24,4 +24,5 @@ public class EventFilterParamsDto {
     private Boolean paid;
     private Boolean onlyAvailable = Boolean.FALSE;
     private EventSort sort = EventSort.EVENT_DATE;
+    private String cursor;
 }
@@ -3,5 +3,6 @@ package ru.practicum.enums;
 public enum EventSort {
 
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    RELEVANCE
 }
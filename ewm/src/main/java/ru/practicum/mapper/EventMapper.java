@@ -4,6 +4,7 @@ import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import ru.practicum.dto.event.*;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShort;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,6 +20,7 @@ public interface EventMapper {
     @Mapping(target = "initiator", ignore = true)
     @Mapping(target = "publishedOn", ignore = true)
     @Mapping(target = "state", ignore = true)
+    @Mapping(target = "syncedViews", ignore = true)
     Event toEvent(NewEventDto newEventDto);
 
     @Mapping(target = "confirmedRequests", source = "confirmedRequests")
@@ -30,12 +32,20 @@ public interface EventMapper {
     EventFullDto toEventFullDto(Event event);
 
     @Mapping(target = "category", source = "category")
-    @Mapping(target = "confirmedRequests", ignore = true)
+    @Mapping(target = "confirmedRequests", source = "confirmedRequests")
     @Mapping(target = "eventDate", expression = "java(ru.practicum.utils.ExploreDateTimeFormatter.localDateTimeToString(event.getEventDate()))")
     @Mapping(target = "initiator", source = "initiator")
     @Mapping(target = "views", ignore = true)
     EventShortDto toEventShortDto(Event event);
 
+    @Mapping(target = "category.id", source = "categoryId")
+    @Mapping(target = "category.name", source = "categoryName")
+    @Mapping(target = "eventDate", expression = "java(ru.practicum.utils.ExploreDateTimeFormatter.localDateTimeToString(event.getEventDate()))")
+    @Mapping(target = "initiator.id", source = "initiatorId")
+    @Mapping(target = "initiator.name", source = "initiatorName")
+    @Mapping(target = "views", ignore = true)
+    EventShortDto toEventShortDto(EventShort event);
+
     @Mapping(target = "rangeStart", expression = "java(start)")
     @Mapping(target = "rangeEnd", expression = "java(end)")
     EventFilterParams toEventFilterParams(EventFilterParamsDto filterDto, LocalDateTime start, LocalDateTime end);
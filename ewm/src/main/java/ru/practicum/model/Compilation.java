@@ -15,7 +15,8 @@ import java.util.Set;
 @Builder(toBuilder = true)
 public class Compilation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "compilations_id_seq")
+    @SequenceGenerator(name = "compilations_id_seq", sequenceName = "compilations_id_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -14,9 +14,16 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Builder(toBuilder = true)
 @Entity(name = "events")
+@NamedEntityGraph(name = Event.WITH_RELATIONS, attributeNodes = {
+        @NamedAttributeNode("category"),
+        @NamedAttributeNode("initiator"),
+        @NamedAttributeNode("location")})
 public class Event {
+    public static final String WITH_RELATIONS = "Event.withRelations";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "events_id_seq")
+    @SequenceGenerator(name = "events_id_seq", sequenceName = "events_id_seq", allocationSize = 50)
     private Long id;
 
     private String annotation;
@@ -58,6 +65,13 @@ public class Event {
     @Transient
     private Long views;
 
-    @Transient
-    private Long confirmedRequests;
+    // Меняется только запросами EventRepository.addConfirmedRequests и reserveConfirmedRequest
+    @Column(insertable = false, updatable = false)
+    @Builder.Default
+    private Long confirmedRequests = 0L;
+
+    // Уникальные просмотры на момент последней синхронизации, пишет только EventViewsSync
+    @Column(insertable = false, updatable = false)
+    @Builder.Default
+    private Long syncedViews = 0L;
 }
@@ -0,0 +1,24 @@
+package ru.practicum.model;
+
+import lombok.Getter;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+// Поисковый вектор события для полнотекстового поиска в PostgreSQL. Колонка вычисляется базой
+// и отделена от Event, чтобы не загружаться вместе с событием и не требоваться на других платформах.
+// Сущность только читается, но не помечена @Immutable: иначе Hibernate предупреждает о каждом
+// массовом UPDATE таблицы events
+@Getter
+@Entity
+@Table(name = "events")
+public class EventSearch {
+    @Id
+    @Column(insertable = false, updatable = false)
+    private Long id;
+
+    @Column(insertable = false, updatable = false)
+    private String searchVector;
+}
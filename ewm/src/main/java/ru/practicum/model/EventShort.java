@@ -0,0 +1,24 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Поля события для краткого представления в списках: без описания, места и сущностей связей
+@Getter
+@AllArgsConstructor
+public class EventShort {
+    private Long id;
+    private String annotation;
+    private Long categoryId;
+    private String categoryName;
+    private Long confirmedRequests;
+    private LocalDateTime eventDate;
+    private Long initiatorId;
+    private String initiatorName;
+    private Boolean paid;
+    private LocalDateTime publishedOn;
+    private String title;
+    private Long syncedViews;
+}
@@ -0,0 +1,15 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+// Поля опубликованного события, нужные для синхронизации просмотров со stats-service
+@Getter
+@AllArgsConstructor
+public class EventViews {
+    private Long id;
+    private LocalDateTime publishedOn;
+    private Long syncedViews;
+}
@@ -6,6 +6,7 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.validation.constraints.NotNull;
 
 @Getter
@@ -16,7 +17,8 @@ import javax.validation.constraints.NotNull;
 @Entity(name = "locations")
 public class Location {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "locations_id_seq")
+    @SequenceGenerator(name = "locations_id_seq", sequenceName = "locations_id_seq", allocationSize = 50)
     private Long id;
 
     @NotNull
@@ -14,7 +14,8 @@ import java.time.LocalDateTime;
 @Entity(name = "requests")
 public class ParticipationRequest {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_id_seq")
+    @SequenceGenerator(name = "requests_id_seq", sequenceName = "requests_id_seq", allocationSize = 50)
     private Long id;
 
     @Builder.Default
@@ -2,12 +2,16 @@ package ru.practicum.repository;
 
 import ru.practicum.dto.event.EventFilterParams;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShort;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CustomEventRepository {
 
     List<Event> adminEventsSearch(EventFilterParams params);
 
-    List<Event> publicEventsSearch(EventFilterParams params);
+    List<EventShort> publicEventsSearch(EventFilterParams params);
+
+    void updateSyncedViews(Map<Long, Long> viewsByEventId);
 }
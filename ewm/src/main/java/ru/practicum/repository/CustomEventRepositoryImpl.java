@@ -1,130 +1,224 @@
 package ru.practicum.repository;
 
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import ru.practicum.enums.EventSort;
 import ru.practicum.enums.EventState;
 import ru.practicum.dto.event.EventFilterParams;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventShort;
+import ru.practicum.model.QCategory;
+import ru.practicum.model.QEvent;
+import ru.practicum.model.QEventSearch;
+import ru.practicum.model.QUser;
+import ru.practicum.utils.EventCursor;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Repository
+@RequiredArgsConstructor
 public class CustomEventRepositoryImpl implements CustomEventRepository {
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
+    private static final QEvent event = QEvent.event;
+    private static final QCategory category = QCategory.category;
+    private static final QUser initiator = QUser.user;
+    private static final QEventSearch search = QEventSearch.eventSearch;
+
+    private final JdbcTemplate jdbcTemplate;
+    @Value("${spring.sql.init.platform}")
+    private String platform;
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    // Категория, инициатор и место загружаются соединением в том же запросе, а не отдельным select на каждую связь
     public List<Event> adminEventsSearch(EventFilterParams params) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Event> cq = cb.createQuery(Event.class);
-        Root<Event> eventRoot = cq.from(Event.class);
-
-        Predicate criteria = buildAdminEventSearchCriteria(cb, eventRoot, params);
-
-        cq.select(eventRoot).where(criteria);
-
-        return executeQuery(cq, params);
+        return new JPAQuery<Event>(entityManager)
+                .select(event)
+                .from(event)
+                .where(buildAdminEventSearchCriteria(params))
+                .orderBy(dateOrder())
+                .offset(offset(params))
+                .limit(params.getSize())
+                .setHint(FETCH_GRAPH, entityManager.getEntityGraph(Event.WITH_RELATIONS))
+                .fetch();
     }
 
-    public List<Event> publicEventsSearch(EventFilterParams params) {
-        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Event> cq = cb.createQuery(Event.class);
-        Root<Event> eventRoot = cq.from(Event.class);
-
-        Predicate criteria = buildPublicEventSearchCriteria(cb, eventRoot, params);
-
-        cq.select(eventRoot).where(criteria);
+    // Выбираются только поля краткого представления, сразу в DTO вне контекста персистентности
+    public List<EventShort> publicEventsSearch(EventFilterParams params) {
+        JPAQuery<EventShort> query = new JPAQuery<EventShort>(entityManager)
+                .select(Projections.constructor(EventShort.class,
+                        event.id,
+                        event.annotation,
+                        category.id,
+                        category.name,
+                        event.confirmedRequests,
+                        event.eventDate,
+                        initiator.id,
+                        initiator.name,
+                        event.paid,
+                        event.publishedOn,
+                        event.title,
+                        event.syncedViews))
+                .from(event)
+                .join(event.category, category)
+                .join(event.initiator, initiator);
+        if (isFullTextSearch(params.getText())) {
+            query.join(search).on(search.id.eq(event.id));
+        }
+        return query
+                .where(buildPublicEventSearchCriteria(params))
+                .orderBy(order(params))
+                .offset(offset(params))
+                .limit(params.getSize())
+                .fetch();
+    }
 
-        return executeQuery(cq, params);
+    // Пачкой JDBC: колонка не обновляется через сущность
+    public void updateSyncedViews(Map<Long, Long> viewsByEventId) {
+        List<Object[]> args = new ArrayList<>(viewsByEventId.size());
+        viewsByEventId.forEach((eventId, views) -> args.add(new Object[]{views, eventId}));
+        jdbcTemplate.batchUpdate("UPDATE events SET synced_views = ? WHERE id = ?", args);
     }
 
-    private Predicate buildAdminEventSearchCriteria(CriteriaBuilder cb, Root<Event> eventRoot, EventFilterParams params) {
-        Predicate criteria = cb.conjunction();
+    private BooleanBuilder buildAdminEventSearchCriteria(EventFilterParams params) {
+        BooleanBuilder criteria = new BooleanBuilder();
 
-        addInitiatorsFilter(criteria, cb, eventRoot, params.getIds());
-        addStateFilter(criteria, cb, eventRoot, params.getStates());
-        addCategoryFilter(criteria, cb, eventRoot, params.getCategories());
-        addRangeStartFilter(criteria, cb, eventRoot, params.getRangeStart());
-        addRangeEndFilter(criteria, cb, eventRoot, params.getRangeEnd());
+        addInitiatorsFilter(criteria, params.getIds());
+        addStateFilter(criteria, params.getStates());
+        addCategoryFilter(criteria, params.getCategories());
+        addRangeStartFilter(criteria, params.getRangeStart());
+        addRangeEndFilter(criteria, params.getRangeEnd());
+        addCursorFilter(criteria, params.getCursor(), EventSort.EVENT_DATE);
 
         return criteria;
     }
 
-    private Predicate buildPublicEventSearchCriteria(CriteriaBuilder cb, Root<Event> eventRoot, EventFilterParams params) {
-        Predicate criteria = cb.conjunction();
+    private BooleanBuilder buildPublicEventSearchCriteria(EventFilterParams params) {
+        BooleanBuilder criteria = new BooleanBuilder();
 
         if (params.getRangeStart() == null) {
             params.setRangeStart(LocalDateTime.now());
         }
 
-        addStateFilter(criteria, cb, eventRoot, List.of(EventState.PUBLISHED));
-        addTextFilter(criteria, cb, eventRoot, params.getText());
-        addCategoryFilter(criteria, cb, eventRoot, params.getCategories());
-        addPaidFilter(criteria, cb, eventRoot, params.getPaid());
-        addRangeStartFilter(criteria, cb, eventRoot, params.getRangeStart());
-        addRangeEndFilter(criteria, cb, eventRoot, params.getRangeEnd());
+        addStateFilter(criteria, List.of(EventState.PUBLISHED));
+        addTextFilter(criteria, params.getText());
+        addCategoryFilter(criteria, params.getCategories());
+        addPaidFilter(criteria, params.getPaid());
+        addAvailableFilter(criteria, params.getOnlyAvailable());
+        addRangeStartFilter(criteria, params.getRangeStart());
+        addRangeEndFilter(criteria, params.getRangeEnd());
+        addCursorFilter(criteria, params.getCursor(), params.getSort());
 
         return criteria;
     }
 
-    private List<Event> executeQuery(CriteriaQuery<Event> cq, EventFilterParams params) {
-        return entityManager.createQuery(cq)
-                .setFirstResult(params.getFrom())
-                .setMaxResults(params.getSize())
-                .getResultList();
+    // С курсором страница начинается после переданной позиции, from не учитывается
+    private static long offset(EventFilterParams params) {
+        return Objects.nonNull(params.getCursor()) ? 0 : params.getFrom();
+    }
+
+    // Полнотекстовый поиск по индексированному вектору есть только в PostgreSQL, на других платформах - LIKE
+    private boolean isFullTextSearch(String text) {
+        return "postgresql".equals(platform) && Objects.nonNull(text) && !text.isEmpty();
     }
 
-    private void addPaidFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, Boolean paid) {
+    // Порядок по просмотрам - по синхронизированной колонке, а не по живым значениям из stats-service.
+    // Без полнотекстового поиска релевантность не определена и выдача упорядочена по дате
+    private OrderSpecifier<?>[] order(EventFilterParams params) {
+        if (params.getSort() == EventSort.VIEWS) {
+            return new OrderSpecifier<?>[]{event.syncedViews.desc(), event.id.desc()};
+        }
+        if (params.getSort() == EventSort.RELEVANCE && isFullTextSearch(params.getText())) {
+            return new OrderSpecifier<?>[]{Expressions.numberTemplate(Double.class, "function('" +
+                    EventSearchFunctions.RANK + "', {0}, {1})", search.searchVector, params.getText()).desc(),
+                    event.id.desc()};
+        }
+        return dateOrder();
+    }
+
+    private static OrderSpecifier<?>[] dateOrder() {
+        return new OrderSpecifier<?>[]{event.eventDate.desc(), event.id.desc()};
+    }
+
+    private void addCursorFilter(BooleanBuilder criteria, String cursor, EventSort sort) {
+        if (Objects.isNull(cursor)) {
+            return;
+        }
+        EventCursor after = EventCursor.decode(cursor, sort);
+        if (sort == EventSort.VIEWS) {
+            criteria.and(event.syncedViews.lt(after.getViews())
+                    .or(event.syncedViews.eq(after.getViews()).and(event.id.lt(after.getId()))));
+        } else {
+            criteria.and(event.eventDate.lt(after.getEventDate())
+                    .or(event.eventDate.eq(after.getEventDate()).and(event.id.lt(after.getId()))));
+        }
+    }
+
+    private void addPaidFilter(BooleanBuilder criteria, Boolean paid) {
         if (Objects.nonNull(paid)) {
-            cb.and(criteria, cb.equal(eventRoot.get("paid"), paid));
+            criteria.and(event.paid.eq(paid));
+        }
+    }
+
+    // Свободные места определяются по счётчику подтверждённых заявок в строке события, без агрегации заявок
+    private void addAvailableFilter(BooleanBuilder criteria, Boolean onlyAvailable) {
+        if (Boolean.TRUE.equals(onlyAvailable)) {
+            criteria.and(event.participantLimit.eq(0L)
+                    .or(event.confirmedRequests.lt(event.participantLimit)));
         }
     }
 
-    private void addTextFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, String text) {
-        if (Objects.nonNull(text) && !text.isEmpty()) {
-            String searchValue = ("%" + text + "%").toLowerCase();
-            Predicate annotation = cb.like(cb.lower(eventRoot.get("annotation")), searchValue);
-            Predicate description = cb.like(cb.lower(eventRoot.get("description")), searchValue);
-            cb.and(criteria, cb.or(annotation, description));
+    private void addTextFilter(BooleanBuilder criteria, String text) {
+        if (isFullTextSearch(text)) {
+            criteria.and(Expressions.booleanTemplate("function('" + EventSearchFunctions.MATCH + "', {0}, {1}) = true",
+                    search.searchVector, text));
+        } else if (Objects.nonNull(text) && !text.isEmpty()) {
+            criteria.and(event.annotation.containsIgnoreCase(text)
+                    .or(event.description.containsIgnoreCase(text)));
         }
     }
 
-    private void addInitiatorsFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, List<Long> ids) {
-        if (!ids.isEmpty()) {
-            cb.and(criteria, eventRoot.get("initiator").get("id").in(ids));
+    private void addInitiatorsFilter(BooleanBuilder criteria, List<Long> ids) {
+        if (Objects.nonNull(ids) && !ids.isEmpty()) {
+            criteria.and(event.initiator.id.in(ids));
         }
     }
 
-    private void addStateFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, List<EventState> states) {
-        if (!states.isEmpty()) {
-            cb.and(criteria, eventRoot.get("state").in(states));
+    private void addStateFilter(BooleanBuilder criteria, List<EventState> states) {
+        if (Objects.nonNull(states) && !states.isEmpty()) {
+            criteria.and(event.state.in(states));
         }
     }
 
-    private void addCategoryFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, List<Long> categories) {
-        if (!categories.isEmpty()) {
-            cb.and(criteria, eventRoot.get("category").in(categories));
+    private void addCategoryFilter(BooleanBuilder criteria, List<Long> categories) {
+        if (Objects.nonNull(categories) && !categories.isEmpty()) {
+            criteria.and(event.category.id.in(categories));
         }
     }
 
-    private void addRangeStartFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, LocalDateTime rangeStart) {
+    private void addRangeStartFilter(BooleanBuilder criteria, LocalDateTime rangeStart) {
         if (rangeStart != null) {
-            cb.and(criteria, cb.greaterThanOrEqualTo(eventRoot.get("eventDate"), rangeStart));
+            criteria.and(event.eventDate.goe(rangeStart));
         }
     }
 
-    private void addRangeEndFilter(Predicate criteria, CriteriaBuilder cb, Root<Event> eventRoot, LocalDateTime rangeEnd) {
+    private void addRangeEndFilter(BooleanBuilder criteria, LocalDateTime rangeEnd) {
         if (rangeEnd != null) {
-            cb.and(criteria, cb.lessThanOrEqualTo(eventRoot.get("eventDate"), rangeEnd));
+            criteria.and(event.eventDate.loe(rangeEnd));
         }
     }
 }
-
-
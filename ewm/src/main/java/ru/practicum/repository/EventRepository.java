@@ -1,15 +1,49 @@
 package ru.practicum.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.enums.EventState;
 import ru.practicum.model.Event;
+import ru.practicum.model.EventViews;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface EventRepository extends JpaRepository<Event, Long>, CustomEventRepository {
 
+    @EntityGraph(Event.WITH_RELATIONS)
     List<Event> findByInitiatorId(Long initiatorId, Pageable pageable);
 
     Optional<Event> findByCategoryId(Long categoryId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM events e WHERE e.id = :eventId")
+    Optional<Event> findByIdForUpdate(@Param("eventId") Long eventId);
+
+    @Modifying
+    @Query("UPDATE events e SET e.confirmedRequests = e.confirmedRequests + :delta WHERE e.id = :eventId")
+    int addConfirmedRequests(@Param("eventId") Long eventId, @Param("delta") long delta);
+
+    // Место занимается одним условным UPDATE: блокировка строки события держится только до коммита,
+    // а проверка лимита и увеличение счётчика не разделены другими транзакциями
+    @Modifying
+    @Query("UPDATE events e SET e.confirmedRequests = e.confirmedRequests + 1 " +
+            "WHERE e.id = :eventId AND (e.participantLimit = 0 OR e.confirmedRequests < e.participantLimit)")
+    int reserveConfirmedRequest(@Param("eventId") Long eventId);
+
+    @Query("SELECT new ru.practicum.model.EventViews(e.id, e.publishedOn, e.syncedViews) FROM events e " +
+            "WHERE e.state = :state AND e.publishedOn IS NOT NULL AND e.id > :afterId ORDER BY e.id")
+    List<EventViews> findViewsByStateAfterId(@Param("state") EventState state, @Param("afterId") long afterId,
+                                             Pageable pageable);
+
+    @Query("SELECT new ru.practicum.model.EventViews(e.id, e.publishedOn, e.syncedViews) FROM events e " +
+            "WHERE e.state = :state AND e.publishedOn IS NOT NULL AND e.id IN :ids")
+    List<EventViews> findViewsByStateAndIdIn(@Param("state") EventState state, @Param("ids") Collection<Long> ids);
 }
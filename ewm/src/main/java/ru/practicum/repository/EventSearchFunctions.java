@@ -0,0 +1,22 @@
+package ru.practicum.repository;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+// Функции полнотекстового поиска PostgreSQL для JPQL: совпадение вектора с запросом и его релевантность.
+// Запрос разбирается websearch_to_tsquery, поэтому произвольный пользовательский текст не приводит к ошибке
+public class EventSearchFunctions implements MetadataBuilderContributor {
+    public static final String MATCH = "fts_match";
+    public static final String RANK = "fts_rank";
+    private static final String QUERY = "websearch_to_tsquery('russian', ?2)";
+
+    @Override
+    public void contribute(MetadataBuilder metadataBuilder) {
+        metadataBuilder.applySqlFunction(MATCH,
+                new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN, "?1 @@ " + QUERY));
+        metadataBuilder.applySqlFunction(RANK,
+                new SQLFunctionTemplate(StandardBasicTypes.DOUBLE, "ts_rank(?1, " + QUERY + ")"));
+    }
+}
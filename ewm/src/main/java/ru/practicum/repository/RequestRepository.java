@@ -1,28 +1,28 @@
 package ru.practicum.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.enums.RequestStatus;
-import ru.practicum.model.ConfirmedRequest;
 import ru.practicum.model.ParticipationRequest;
 
 import java.util.List;
-import java.util.Optional;
 
 public interface RequestRepository extends JpaRepository<ParticipationRequest, Long> {
-    @Query("select new ru.practicum.model.ConfirmedRequest(r.event.id,COUNT(distinct r)) " +
-            "FROM requests r " +
-            "where r.status = 'CONFIRMED' and r.event.id IN :eventsIds group by r.event.id")
-    List<ConfirmedRequest> findConfirmedRequest(@Param(value = "eventsIds") List<Long> eventsIds);
-
-    Long countByEventIdAndStatus(Long eventId, RequestStatus status);
-
     List<ParticipationRequest> findByEventId(Long eventId);
 
     List<ParticipationRequest> findByRequesterId(Long userId);
 
-    Optional<ParticipationRequest> findFirst1ByEventIdAndRequesterId(Long eventId, Long userId);
+    List<ParticipationRequest> findAllByIdInAndEventId(List<Long> ids, Long eventId);
+
+    @Modifying
+    @Query("UPDATE requests r SET r.status = :status WHERE r.id IN :ids")
+    int updateStatus(@Param("ids") List<Long> ids, @Param("status") RequestStatus status);
 
-    List<ParticipationRequest> findAllByIdIn(List<Long> ids);
+    // Статус меняется, только если заявка всё ещё в ожидаемом статусе: из параллельных изменений срабатывает одно
+    @Modifying
+    @Query("UPDATE requests r SET r.status = :status WHERE r.id = :id AND r.status = :expected")
+    int updateStatusIf(@Param("id") Long id, @Param("expected") RequestStatus expected,
+                       @Param("status") RequestStatus status);
 }
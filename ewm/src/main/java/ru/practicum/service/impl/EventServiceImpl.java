@@ -68,7 +68,6 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
         int page = from / size;
         List<Event> events = eventRepo.findByInitiatorId(userId, PageRequest.of(page, size));
         statService.getViewsList(events);
-        getConfirmedRequest(events);
         return new ArrayList<>(eventMapper.toEventShortDtoListForEvents(events));
     }
 
@@ -77,7 +76,6 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
     public EventFullDto getEventByPrivate(Long userId, Long eventId) {
         getUserIfExists(userId);
         Event event = getEventIfExists(eventId);
-        getConfirmedRequest(List.of(event));
         return eventMapper.toEventFullDto(event);
     }
 
@@ -109,19 +107,21 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
     @Transactional
     public EventRequestStatusUpdateResult updateByPrivate(EventRequestStatusUpdateRequest update, Long userId, Long eventId) {
         getUserIfExists(userId);
-        Event event = getEventIfExists(eventId);
+        Event event = eventRepo.findByIdForUpdate(eventId)
+                .orElseThrow(() -> new NotFoundException("Event not found."));
         List<Long> requestIds = update.getRequestIds();
         EventRequestStatusUpdateResult result = new EventRequestStatusUpdateResult();
         if (!isRequestStatusUpdateAllowed(event, update)) {
             return result;
         }
-        List<ParticipationRequest> requestsToUpdate = requestRepo.findAllByIdIn(requestIds);
+        List<ParticipationRequest> requestsToUpdate = requestRepo.findAllByIdInAndEventId(requestIds, eventId);
+        checkAllRequestsOfEvent(requestsToUpdate, requestIds);
         checkAllRequestsPending(requestsToUpdate);
         RequestStatus status = RequestStatus.valueOf(update.getStatus());
         if (status == RequestStatus.CONFIRMED) {
             confirmAndSetInResult(requestsToUpdate, result, event);
         } else if (status == RequestStatus.REJECTED) {
-            rejectAndSetInResult(requestsToUpdate, result);
+            result.setRejectedRequests(updateStatus(requestsToUpdate, RequestStatus.REJECTED));
         }
         return result;
     }
@@ -129,10 +129,9 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
     @Override
     @Transactional(readOnly = true)
     public List<EventFullDto> getEventsByAdmin(EventFilterParamsDto paramsDto) {
-        EventFilterParams params = convertInputParams(paramsDto);
+        EventFilterParams params = convertInputParams(paramsDto, null);
         List<Event> events = eventRepo.adminEventsSearch(params);
         statService.getViewsList(events);
-        getConfirmedRequest(events);
         return events.stream()
                 .map(eventMapper::toEventFullDto)
                 .sorted(getComparator(params.getSort()))
@@ -179,21 +178,24 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
     @Override
     @Transactional(readOnly = true)
     public List<EventShortDto> getEventsByPublic(EventFilterParamsDto paramsDto, HttpServletRequest request) {
-        EventFilterParams params = convertInputParams(paramsDto);
-        List<Event> events = eventRepo.publicEventsSearch(params);
-        statService.getViewsList(events);
-        getConfirmedRequest(events);
+        EventFilterParams params = convertInputParams(paramsDto, LocalDateTime.now());
+        List<EventShort> events = eventRepo.publicEventsSearch(params);
+        // При сортировке по просмотрам отдаются синхронизированные значения, по которым упорядочена выборка
+        boolean byViews = params.getSort() == EventSort.VIEWS;
+        Map<Long, LocalDateTime> publishedOn = new HashMap<>();
+        events.stream()
+                .filter(event -> !byViews && event.getPublishedOn() != null)
+                .forEach(event -> publishedOn.put(event.getId(), event.getPublishedOn()));
+        Map<Long, Long> views = statService.getViews(publishedOn);
         statService.addHit(request);
-        return events.stream().map(eventMapper::toEventShortDto)
-                .sorted(getComparator(params.getSort())).collect(Collectors.toList());
-    }
-
-    private void getConfirmedRequest(List<Event> events) {
-        List<Long> eventIds = events.stream().map(Event::getId).collect(Collectors.toList());
-        List<ConfirmedRequest> confirmedRequests = requestRepo.findConfirmedRequest(eventIds);
-        Map<Long, Long> confirmedRequestsMap = confirmedRequests.stream()
-                .collect(Collectors.toMap(ConfirmedRequest::getEventId, ConfirmedRequest::getCount));
-        events.forEach(event -> event.setConfirmedRequests(confirmedRequestsMap.getOrDefault(event.getId(), 0L)));
+        // Порядок выдачи, в том числе по релевантности, задан запросом к базе
+        return events.stream()
+                .map(event -> {
+                    EventShortDto dto = eventMapper.toEventShortDto(event);
+                    dto.setViews(byViews ? event.getSyncedViews() : views.getOrDefault(event.getId(), 0L));
+                    return dto;
+                })
+                .collect(Collectors.toList());
     }
 
     private Comparator<EventDto> getComparator(EventSort sortType) {
@@ -212,6 +214,13 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
         eventDto.setViews(views);
     }
 
+    // Заявки другого события изменили бы чужой счётчик подтверждённых заявок
+    private static void checkAllRequestsOfEvent(List<ParticipationRequest> requests, List<Long> requestIds) {
+        if (requests.size() != new HashSet<>(requestIds).size()) {
+            throw new ConflictException("Requests do not belong to the event.");
+        }
+    }
+
     private static void checkAllRequestsPending(List<ParticipationRequest> requests) {
         boolean allPending = requests.stream()
                 .allMatch(r -> r.getStatus() == RequestStatus.PENDING);
@@ -220,14 +229,15 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
         }
     }
 
-    private EventFilterParams convertInputParams(EventFilterParamsDto paramsDto) {
+    // Без rangeStart публичный поиск показывает только будущие события, админский - все
+    private EventFilterParams convertInputParams(EventFilterParamsDto paramsDto, LocalDateTime defaultStart) {
         EventFilterParams params;
         try {
             String startString = paramsDto.getRangeStart();
             String endString = paramsDto.getRangeEnd();
-            LocalDateTime start = getFromStringOrSetDefault(startString, LocalDateTime.now());
+            LocalDateTime start = getFromStringOrSetDefault(startString, defaultStart);
             LocalDateTime end = getFromStringOrSetDefault(endString, null);
-            if (end != null && end.isBefore(start)) {
+            if (start != null && end != null && end.isBefore(start)) {
                 throw new BadRequestException("Invalid time-range filter params.");
             }
             params = eventMapper.toEventFilterParams(paramsDto, start, end);
@@ -268,36 +278,29 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
         event.setState(EventState.CANCELED);
     }
 
+    // Событие заблокировано на время транзакции, поэтому остаток мест не изменится до коммита.
+    // Заявки подтверждаются в порядке подачи, пока есть места, остальные отклоняются
     private void confirmAndSetInResult(List<ParticipationRequest> requestsToUpdate, EventRequestStatusUpdateResult result, Event event) {
-        long confirmed = requestRepo.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED);
-        long limit = event.getParticipantLimit();
-
-        for (ParticipationRequest request : requestsToUpdate) {
-            if (confirmed == limit) {
-                int start = requestsToUpdate.indexOf(request);
-                int end = requestsToUpdate.size();
-                rejectAndSetInResult(requestsToUpdate.subList(start, end), result);
-                throw new ConflictException("Participants limit is reached.");
-            }
-            confirmAndSetInResult(List.of(request), result);
-            confirmed++;
+        long available = event.getParticipantLimit() - event.getConfirmedRequests();
+        if (available <= 0) {
+            throw new ConflictException("Participants limit is reached.");
         }
+        requestsToUpdate.sort(Comparator.comparing(ParticipationRequest::getId));
+        int split = (int) Math.min(available, requestsToUpdate.size());
+        result.setConfirmedRequests(updateStatus(requestsToUpdate.subList(0, split), RequestStatus.CONFIRMED));
+        result.setRejectedRequests(updateStatus(requestsToUpdate.subList(split, requestsToUpdate.size()), RequestStatus.REJECTED));
+        eventRepo.addConfirmedRequests(event.getId(), split);
     }
 
-    private void rejectAndSetInResult(List<ParticipationRequest> requestsToUpdate, EventRequestStatusUpdateResult result) {
-        setStatus(requestsToUpdate, RequestStatus.REJECTED);
-        List<ParticipationRequest> rejectedRequests = requestRepo.saveAll(requestsToUpdate);
-        result.setRejectedRequests(participationRequestMapper.toRequestDtoList(rejectedRequests));
-    }
-
-    private void confirmAndSetInResult(List<ParticipationRequest> requestsToUpdate, EventRequestStatusUpdateResult result) {
-        setStatus(requestsToUpdate, RequestStatus.CONFIRMED);
-        List<ParticipationRequest> confirmed = requestRepo.saveAll(requestsToUpdate);
-        result.setConfirmedRequests(participationRequestMapper.toRequestDtoList(confirmed));
-    }
-
-    private void setStatus(List<ParticipationRequest> requestsToUpdate, RequestStatus status) {
-        requestsToUpdate.forEach(r -> r.setStatus(status));
+    // Статус меняется одним UPDATE на весь список, загруженные заявки не изменяются
+    private List<ParticipationRequestDto> updateStatus(List<ParticipationRequest> requests, RequestStatus status) {
+        if (requests.isEmpty()) {
+            return new ArrayList<>();
+        }
+        requestRepo.updateStatus(requests.stream().map(ParticipationRequest::getId).collect(Collectors.toList()), status);
+        List<ParticipationRequestDto> dtos = participationRequestMapper.toRequestDtoList(requests);
+        dtos.forEach(dto -> dto.setStatus(status.name()));
+        return dtos;
     }
 
     private User getUserIfExists(Long userId) {
@@ -323,9 +326,7 @@ public class EventServiceImpl implements AdminEventService, PublicEventService,
 
     private EventFullDto completeEventFullDto(Event event) {
         EventFullDto eventFullDto = eventMapper.toEventFullDto(event);
-        Long confirmedRequests = requestRepo.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED);
         completeWithViews(eventFullDto);
-        eventFullDto.setConfirmedRequests(confirmedRequests);
         return eventFullDto;
     }
 
@@ -0,0 +1,151 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.StatsClient;
+import ru.practicum.UriWindow;
+import ru.practicum.enums.EventState;
+import ru.practicum.model.EventViews;
+import ru.practicum.repository.EventRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Переносит уникальные просмотры опубликованных событий из stats-service в колонку events.synced_views,
+// по которой публичный поиск сортирует sort=VIEWS в базе. После запуска один раз обходятся все события,
+// дальше - только события с хитами с прошлых запусков, в базу пишутся только изменившиеся значения
+@Slf4j
+@Component
+public class EventViewsSync {
+    private static final String EVENT_URI = "/events/";
+
+    private final EventRepository repository;
+    private final StatsClient statsClient;
+    private final StatsCircuitBreaker breaker;
+    private final int batchSize;
+    private final Counter updated;
+    private final Set<Long> touched = ConcurrentHashMap.newKeySet();
+    // Хиты доходят до stats-service с задержкой публикации, поэтому событие синхронизируется два запуска подряд
+    private Set<Long> previous = Set.of();
+    private boolean fullySynced;
+
+    public EventViewsSync(EventRepository repository,
+                          StatsClient statsClient,
+                          StatsCircuitBreaker breaker,
+                          MeterRegistry registry,
+                          @Value("${stats-views.sync-batch-size:1000}") int batchSize) {
+        this.repository = repository;
+        this.statsClient = statsClient;
+        this.breaker = breaker;
+        this.batchSize = batchSize;
+        this.updated = Counter.builder("stats.views.sync.updated")
+                .description("Events whose synced view count changed")
+                .register(registry);
+    }
+
+    public void onHit(String uri) {
+        if (!uri.startsWith(EVENT_URI)) {
+            return;
+        }
+        try {
+            touched.add(Long.parseLong(uri.substring(EVENT_URI.length())));
+        } catch (NumberFormatException ignored) {
+            // Не просмотр события
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats-views.sync-interval-ms:60000}")
+    public void sync() {
+        if (!fullySynced) {
+            fullySynced = syncAll();
+            return;
+        }
+        Set<Long> current = new HashSet<>();
+        for (Iterator<Long> it = touched.iterator(); it.hasNext(); ) {
+            current.add(it.next());
+            it.remove();
+        }
+        Set<Long> ids = new HashSet<>(previous);
+        ids.addAll(current);
+        if (ids.isEmpty() || syncTouched(new ArrayList<>(ids))) {
+            previous = current;
+        } else {
+            // stats-service недоступен: события останутся в очереди до следующего запуска
+            touched.addAll(ids);
+        }
+    }
+
+    private boolean syncAll() {
+        long lastId = 0;
+        List<EventViews> events;
+        do {
+            events = repository.findViewsByStateAfterId(EventState.PUBLISHED, lastId, PageRequest.of(0, batchSize));
+            if (events.isEmpty()) {
+                return true;
+            }
+            if (!syncBatch(events)) {
+                return false;
+            }
+            lastId = events.get(events.size() - 1).getId();
+        } while (events.size() == batchSize);
+        return true;
+    }
+
+    private boolean syncTouched(List<Long> ids) {
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            List<EventViews> events = repository.findViewsByStateAndIdIn(EventState.PUBLISHED, batch);
+            if (!events.isEmpty() && !syncBatch(events)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean syncBatch(List<EventViews> events) {
+        if (!breaker.tryAcquire()) {
+            return false;
+        }
+        List<UriWindow> windows = new ArrayList<>(events.size());
+        for (EventViews event : events) {
+            windows.add(new UriWindow(uri(event.getId()), event.getPublishedOn()));
+        }
+        Map<String, Long> hits;
+        try {
+            hits = statsClient.getHitsSince(windows, true);
+            breaker.onSuccess();
+        } catch (RestClientException e) {
+            breaker.onFailure();
+            log.warn("Failed to sync views from stats-service: {}", e.getMessage());
+            return false;
+        }
+        Map<Long, Long> changed = new HashMap<>();
+        for (EventViews event : events) {
+            long views = hits.getOrDefault(uri(event.getId()), 0L);
+            if (views != event.getSyncedViews()) {
+                changed.put(event.getId(), views);
+            }
+        }
+        if (!changed.isEmpty()) {
+            repository.updateSyncedViews(changed);
+            updated.increment(changed.size());
+        }
+        return true;
+    }
+
+    private static String uri(Long eventId) {
+        return EVENT_URI + eventId;
+    }
+}
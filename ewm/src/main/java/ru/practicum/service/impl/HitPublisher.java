@@ -0,0 +1,96 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHit;
+import ru.practicum.StatsClient;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class HitPublisher {
+    private final StatsClient statsClient;
+    private final BlockingQueue<EndpointHit> queue;
+    private final int batchSize;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong spooled = new AtomicLong();
+
+    public HitPublisher(StatsClient statsClient,
+                        MeterRegistry registry,
+                        @Value("${stats-publisher.queue-capacity}") int queueCapacity,
+                        @Value("${stats-publisher.batch-size}") int batchSize) {
+        this.statsClient = statsClient;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        Gauge.builder("stats.publisher.queue.depth", queue, BlockingQueue::size)
+                .description("Hits waiting to be sent to stats-service")
+                .register(registry);
+        FunctionCounter.builder("stats.publisher.sent", sent, AtomicLong::get)
+                .description("Hits accepted by stats-service")
+                .register(registry);
+        FunctionCounter.builder("stats.publisher.dropped", dropped, AtomicLong::get)
+                .description("Hits dropped because the queue was full")
+                .register(registry);
+        FunctionCounter.builder("stats.publisher.failed", failed, AtomicLong::get)
+                .description("Hits lost because stats-service rejected a batch or the spool was full")
+                .register(registry);
+        FunctionCounter.builder("stats.publisher.spooled", spooled, AtomicLong::get)
+                .description("Hits saved to the local spool while stats-service was unavailable")
+                .register(registry);
+    }
+
+    public void publish(EndpointHit hit) {
+        if (!queue.offer(hit)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats-publisher.flush-interval-ms}")
+    public void flush() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            send(batch);
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void send(List<EndpointHit> batch) {
+        try {
+            ResponseEntity<Object> response = statsClient.addHits(batch);
+            if (response.getStatusCode().is2xxSuccessful()) {
+                sent.addAndGet(batch.size());
+                return;
+            }
+            if (response.getStatusCode().is4xxClientError()) {
+                log.warn("Stats-service rejected {} hits with status {}", batch.size(), response.getStatusCode());
+                failed.addAndGet(batch.size());
+                return;
+            }
+            log.warn("Stats-service answered {} to a batch of {} hits", response.getStatusCode(), batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to send {} hits to stats-service: {}", batch.size(), e.getMessage());
+        }
+        int saved = statsClient.spool(batch);
+        spooled.addAndGet(saved);
+        failed.addAndGet(batch.size() - saved);
+    }
+}
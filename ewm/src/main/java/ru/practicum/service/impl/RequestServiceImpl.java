@@ -1,6 +1,7 @@
 package ru.practicum.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.enums.EventState;
@@ -40,9 +41,6 @@ public class RequestServiceImpl implements RequestService {
     @Override
     @Transactional
     public ParticipationRequestDto add(Long userId, Long eventId) {
-        if (requestRepo.findFirst1ByEventIdAndRequesterId(eventId, userId).isPresent()) {
-            throw new ConflictException("Participation request already exists.");
-        }
         Event event = eventRepo.findById(eventId).orElseThrow(() -> new NotFoundException("Event not found."));
         if (userId.equals(event.getInitiator().getId())) {
             throw new ConflictException("Event owner not allowed to create request to his own event.");
@@ -50,15 +48,21 @@ public class RequestServiceImpl implements RequestService {
         if (!event.getState().equals(EventState.PUBLISHED)) {
             throw new ConflictException("Invalid event status.");
         }
-        if (event.getParticipantLimit() > 0) {
-            Long participants = requestRepo.countByEventIdAndStatus(event.getId(), RequestStatus.CONFIRMED);
-            Long limit = event.getParticipantLimit();
-            if (participants >= limit) {
-                throw new ConflictException("Participants limit is reached.");
-            }
+        if (event.getParticipantLimit() > 0 && event.getConfirmedRequests() >= event.getParticipantLimit()) {
+            throw new ConflictException("Participants limit is reached.");
         }
-        ParticipationRequest request = completeNewRequest(userId, event);
-        return mapper.toRequestDto(requestRepo.save(request));
+        ParticipationRequest request;
+        try {
+            request = requestRepo.saveAndFlush(completeNewRequest(userId, event));
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException("Participation request already exists.");
+        }
+        // Заявка без модерации сразу занимает место; резервирование - последний запрос транзакции,
+        // чтобы строка события была заблокирована как можно меньше
+        if (request.getStatus() == RequestStatus.CONFIRMED && eventRepo.reserveConfirmedRequest(eventId) == 0) {
+            throw new ConflictException("Participants limit is reached.");
+        }
+        return mapper.toRequestDto(request);
     }
 
     @Override
@@ -67,6 +71,11 @@ public class RequestServiceImpl implements RequestService {
         getUserIfExists(userId);
         ParticipationRequest request = requestRepo.findById(requestId).orElseThrow(() ->
                 new NotFoundException("Participation request not found."));
+        // Место освобождает только та отмена, которая сама перевела заявку из CONFIRMED
+        if (request.getStatus() == RequestStatus.CONFIRMED
+                && requestRepo.updateStatusIf(requestId, RequestStatus.CONFIRMED, RequestStatus.CANCELED) == 1) {
+            eventRepo.addConfirmedRequests(request.getEvent().getId(), -1);
+        }
         request.setStatus(RequestStatus.CANCELED);
         return mapper.toRequestDto(requestRepo.save(request));
     }
@@ -1,19 +1,15 @@
 package ru.practicum.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import ru.practicum.StatsClient;
-import ru.practicum.ViewStats;
+import ru.practicum.EndpointHit;
+import ru.practicum.UriWindow;
 import ru.practicum.enums.EventState;
 import ru.practicum.error.exceptions.NotFoundException;
 import ru.practicum.model.Event;
 import ru.practicum.repository.EventRepository;
+import ru.practicum.utils.ExploreDateTimeFormatter;
 
 import javax.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
@@ -22,62 +18,52 @@ import java.util.*;
 @Service
 @RequiredArgsConstructor
 public class StatService {
-    private final StatsClient statsClient;
+    private final ViewsCache viewsCache;
+    private final HitPublisher hitPublisher;
+    private final EventViewsSync eventViewsSync;
     private final EventRepository repository;
-    private final ObjectMapper mapper;
     @Value("${app.name}")
     private String app;
-    private static final TypeReference<List<ViewStats>> TYPE_REFERENCE_LIST = new TypeReference<>() {};
 
     public void addHit(HttpServletRequest request) {
         String uri = request.getRequestURI();
         String ip = request.getRemoteAddr();
         LocalDateTime timestamp = LocalDateTime.now();
-        statsClient.addHit(app, uri, ip, timestamp);
+        hitPublisher.publish(new EndpointHit(app, uri, ip, ExploreDateTimeFormatter.localDateTimeToString(timestamp)));
+        eventViewsSync.onHit(uri);
     }
 
     public Long getViews(Long eventId) {
         Event event = repository.findById(eventId)
                 .orElseThrow(() -> new NotFoundException("Event not found."));
-        if (event.getState() != EventState.PUBLISHED) {
-            return 0L;
-        }
-        LocalDateTime start = event.getPublishedOn();
-        LocalDateTime end = LocalDateTime.now();
-        String uri = "/events/" + event.getId();
-        ResponseEntity<Object> response = statsClient.getStats(start, end, List.of(uri), true);
-        try {
-            String responseValue = mapper.writeValueAsString(response.getBody());
-            List<ViewStats> viewStats = Arrays.asList(mapper.readValue(responseValue, new TypeReference<>(){}));
-            return viewStats.isEmpty() ? 0 : viewStats.get(0).getHits();
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+        getViewsList(List.of(event));
+        return event.getViews();
     }
 
     public void getViewsList(List<Event> events) {
         if (events == null || events.isEmpty()) {
             return;
         }
-        LocalDateTime start = events.get(0).getCreatedOn();
-        LocalDateTime end = LocalDateTime.now();
-        List<String> uris = new ArrayList<>();
-        String uri = "";
-        Map<String, Event> eventsUri = new HashMap<>();
+        Map<Long, LocalDateTime> publishedOn = new HashMap<>();
         for (Event event : events) {
-            if (start.isBefore(event.getCreatedOn())) {
-                start = event.getCreatedOn();
+            if (event.getState() == EventState.PUBLISHED && event.getPublishedOn() != null) {
+                publishedOn.put(event.getId(), event.getPublishedOn());
             }
-            uri = "/events/" + event.getId();
-            uris.add(uri);
-            eventsUri.put(uri, event);
-            event.setViews(0L);
         }
-        ResponseEntity<Object> response = statsClient.getStats(start, end, uris, true);
-        if (response.getStatusCode() == HttpStatus.OK) {
-            List<ViewStats> stats = mapper.convertValue(response.getBody(), TYPE_REFERENCE_LIST);
-            stats.forEach((stat) ->
-                    eventsUri.get(stat.getUri()).setViews(stat.getHits()));
+        Map<Long, Long> views = getViews(publishedOn);
+        events.forEach(event -> event.setViews(views.getOrDefault(event.getId(), 0L)));
+    }
+
+    // Просмотры по id опубликованных событий считаются с момента публикации каждого, все окна - одним запросом
+    public Map<Long, Long> getViews(Map<Long, LocalDateTime> publishedOnByEventId) {
+        if (publishedOnByEventId.isEmpty()) {
+            return Map.of();
         }
+        Map<UriWindow, Long> windows = new HashMap<>();
+        publishedOnByEventId.forEach((eventId, publishedOn) ->
+                windows.put(new UriWindow("/events/" + eventId, publishedOn), eventId));
+        Map<Long, Long> views = new HashMap<>();
+        viewsCache.get(windows.keySet()).forEach((window, count) -> views.put(windows.get(window), count));
+        return views;
     }
-}
\ No newline at end of file
+}
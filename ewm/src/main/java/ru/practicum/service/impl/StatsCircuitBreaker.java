@@ -0,0 +1,60 @@
+package ru.practicum.service.impl;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// После failureThreshold ошибок подряд запросы к stats-service не выполняются openDuration,
+// затем пропускается один пробный запрос: успех закрывает выключатель, ошибка снова открывает
+@Slf4j
+@Component
+public class StatsCircuitBreaker {
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong openUntil = new AtomicLong();
+    private volatile boolean open;
+
+    public StatsCircuitBreaker(MeterRegistry registry,
+                               @Value("${stats-views.breaker.failure-threshold:5}") int failureThreshold,
+                               @Value("${stats-views.breaker.open-duration:30s}") Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        Gauge.builder("stats.views.breaker.open", this, breaker -> breaker.open ? 1 : 0)
+                .description("1 while calls to stats-service are suspended")
+                .register(registry);
+    }
+
+    public boolean tryAcquire() {
+        if (!open) {
+            return true;
+        }
+        long until = openUntil.get();
+        long now = System.nanoTime();
+        return now - until >= 0 && openUntil.compareAndSet(until, now + openNanos);
+    }
+
+    public void onSuccess() {
+        failures.set(0);
+        if (open) {
+            open = false;
+            log.info("Stats-service is available again");
+        }
+    }
+
+    public void onFailure() {
+        if (failures.incrementAndGet() >= failureThreshold || open) {
+            openUntil.set(System.nanoTime() + openNanos);
+            if (!open) {
+                open = true;
+                log.warn("Stats-service calls are suspended after {} failures", failureThreshold);
+            }
+        }
+    }
+}
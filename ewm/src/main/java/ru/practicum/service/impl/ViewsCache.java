@@ -0,0 +1,195 @@
+package ru.practicum.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.StatsClient;
+import ru.practicum.UriWindow;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+// Уникальные просмотры по окнам {uri, since}. Значение старше ttl отдаётся сразу и обновляется в фоне,
+// синхронно запрашиваются только отсутствующие окна. Пока stats-service недоступен, отдаются
+// последние известные значения, а для новых окон - 0
+@Slf4j
+@Component
+public class ViewsCache {
+    private final StatsClient statsClient;
+    private final StatsCircuitBreaker breaker;
+    private final long ttlNanos;
+    private final Cache<UriWindow, Views> cache;
+    private final Set<UriWindow> refreshing = ConcurrentHashMap.newKeySet();
+    private final Counter fresh;
+    private final Counter stale;
+    private final Counter missed;
+    private final Counter failed;
+    private final Timer staleness;
+
+    public ViewsCache(StatsClient statsClient,
+                      StatsCircuitBreaker breaker,
+                      MeterRegistry registry,
+                      @Value("${stats-views.ttl:10s}") Duration ttl,
+                      @Value("${stats-views.max-size:100000}") long maxSize) {
+        this.statsClient = statsClient;
+        this.breaker = breaker;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        this.fresh = lookups(registry, "fresh");
+        this.stale = lookups(registry, "stale");
+        this.missed = lookups(registry, "miss");
+        this.failed = Counter.builder("stats.views.failures")
+                .description("Failed view requests to stats-service")
+                .register(registry);
+        this.staleness = Timer.builder("stats.views.staleness")
+                .description("Age of view counts served from the cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        Gauge.builder("stats.views.cache.size", cache, Cache::estimatedSize)
+                .description("View counts held in the cache")
+                .register(registry);
+    }
+
+    public Map<UriWindow, Long> get(Collection<UriWindow> windows) {
+        Map<UriWindow, Long> result = new HashMap<>();
+        List<UriWindow> missing = new ArrayList<>();
+        List<UriWindow> expired = new ArrayList<>();
+        long now = System.nanoTime();
+        for (UriWindow window : windows) {
+            Views views = cache.getIfPresent(window);
+            if (views == null) {
+                missing.add(window);
+                continue;
+            }
+            long age = now - views.loadedAt;
+            staleness.record(age, TimeUnit.NANOSECONDS);
+            result.put(window, views.count);
+            if (age < ttlNanos) {
+                fresh.increment();
+            } else {
+                stale.increment();
+                expired.add(window);
+            }
+        }
+        missed.increment(missing.size());
+        if (!missing.isEmpty()) {
+            // Устаревшие окна обновляются тем же запросом, что и отсутствующие
+            missing.addAll(expired);
+            Map<UriWindow, Long> loaded = load(missing);
+            for (UriWindow window : missing) {
+                result.put(window, loaded.getOrDefault(window, result.getOrDefault(window, 0L)));
+            }
+        } else if (!expired.isEmpty()) {
+            refresh(expired);
+        }
+        return result;
+    }
+
+    private Map<UriWindow, Long> load(List<UriWindow> windows) {
+        if (!breaker.tryAcquire()) {
+            return Map.of();
+        }
+        try {
+            Map<UriWindow, Long> loaded = store(windows, statsClient.getHitsSince(windows, true));
+            breaker.onSuccess();
+            return loaded;
+        } catch (RestClientException e) {
+            onFailure(e);
+            return Map.of();
+        }
+    }
+
+    private void refresh(List<UriWindow> expired) {
+        List<UriWindow> windows = new ArrayList<>(expired.size());
+        for (UriWindow window : expired) {
+            if (refreshing.add(window)) {
+                windows.add(window);
+            }
+        }
+        if (windows.isEmpty()) {
+            return;
+        }
+        if (!breaker.tryAcquire()) {
+            refreshing.removeAll(windows);
+            return;
+        }
+        CompletableFuture<Map<String, Long>> hits;
+        try {
+            hits = statsClient.getHitsSinceAsync(windows, true);
+        } catch (RejectedExecutionException e) {
+            // Очередь клиента заполнена: отдаются устаревшие значения, окна обновятся при следующем обращении
+            refreshing.removeAll(windows);
+            log.warn("Skipped refresh of {} view windows: stats-client queue is full", windows.size());
+            return;
+        }
+        hits.whenComplete((loaded, e) -> {
+            if (e == null) {
+                store(windows, loaded);
+                breaker.onSuccess();
+            } else {
+                onFailure(e instanceof CompletionException ? e.getCause() : e);
+            }
+            refreshing.removeAll(windows);
+        });
+    }
+
+    // Окна без хитов в ответе сервера получают 0, чтобы не запрашивать их повторно до истечения ttl
+    private Map<UriWindow, Long> store(List<UriWindow> windows, Map<String, Long> hits) {
+        long loadedAt = System.nanoTime();
+        Map<UriWindow, Long> loaded = new HashMap<>();
+        for (UriWindow window : windows) {
+            long count = hits.getOrDefault(window.getUri(), 0L);
+            cache.put(window, new Views(count, loadedAt));
+            loaded.put(window, count);
+        }
+        return loaded;
+    }
+
+    // Отказ stats-service принять запрос (4xx) означает, что сервис доступен
+    private void onFailure(Throwable e) {
+        failed.increment();
+        if (e instanceof HttpClientErrorException) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+        log.warn("Failed to load views from stats-service: {}", e.getMessage());
+    }
+
+    private static Counter lookups(MeterRegistry registry, String result) {
+        return Counter.builder("stats.views.cache.lookups")
+                .description("View count lookups by result: fresh and stale are served from the cache")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static class Views {
+        private final long count;
+        private final long loadedAt;
+
+        Views(long count, long loadedAt) {
+            this.count = count;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.practicum.utils;
+
+import lombok.Value;
+import ru.practicum.dto.event.EventDto;
+import ru.practicum.enums.EventSort;
+import ru.practicum.error.exceptions.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// Позиция в выдаче событий, упорядоченной по убыванию (event_date, id) или (views, id): следующая страница
+// начинается сразу после последнего события предыдущей, без OFFSET. Для клиента - непрозрачная строка
+@Value
+public class EventCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SEPARATOR = "|";
+
+    EventSort sort;
+    LocalDateTime eventDate;
+    Long views;
+    Long id;
+
+    public String encode() {
+        String key = sort == EventSort.VIEWS ? String.valueOf(views) : String.valueOf(eventDate);
+        String value = String.join(SEPARATOR, sort.name(), key, String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Курсор действителен только для той сортировки, в которой он получен
+    public static EventCursor decode(String cursor, EventSort requestedSort) {
+        EventSort sort = Objects.requireNonNullElse(requestedSort, EventSort.EVENT_DATE);
+        if (sort == EventSort.RELEVANCE) {
+            throw new BadRequestException("Cursor is not supported for RELEVANCE sort.");
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+        if (parts.length != 3 || !sort.name().equals(parts[0])) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+        try {
+            long id = Long.parseLong(parts[2]);
+            return sort == EventSort.VIEWS
+                    ? new EventCursor(sort, null, Long.parseLong(parts[1]), id)
+                    : new EventCursor(sort, LocalDateTime.parse(parts[1]), null, id);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+    }
+
+    // Курсор следующей страницы есть, только если страница заполнена.
+    // Выдача по релевантности листается только через from: вес совпадения не хранится в базе
+    public static Optional<String> next(List<? extends EventDto> page, Integer size, EventSort sort) {
+        if (page.isEmpty() || page.size() < size || sort == EventSort.RELEVANCE) {
+            return Optional.empty();
+        }
+        EventDto last = page.get(page.size() - 1);
+        return Optional.of(new EventCursor(Objects.requireNonNullElse(sort, EventSort.EVENT_DATE),
+                ExploreDateTimeFormatter.stringToLocalDateTime(last.getEventDate()),
+                last.getViews(), last.getId()).encode());
+    }
+}
@@ -1,5 +1,14 @@
+-- id выдаёт Hibernate блоками по 50 значений, шаг последовательностей должен совпадать с allocationSize
+CREATE SEQUENCE IF NOT EXISTS users_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS categories_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS locations_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS events_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS compilations_id_seq INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_id_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS users (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   email VARCHAR(254) NOT NULL,
   name VARCHAR(250) NOT NULL,
   CONSTRAINT pk_user PRIMARY KEY (id),
@@ -8,7 +17,7 @@ CREATE TABLE IF NOT EXISTS users (
 );
 
 CREATE TABLE IF NOT EXISTS categories (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   name VARCHAR(250) NOT NULL,
   CONSTRAINT pk_cat PRIMARY KEY (id),
   CONSTRAINT uq_cat_name UNIQUE (name),
@@ -16,14 +25,14 @@ CREATE TABLE IF NOT EXISTS categories (
 );
 
 CREATE TABLE IF NOT EXISTS locations (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   lat FLOAT,
   lon FLOAT,
   CONSTRAINT pk_location PRIMARY KEY (id)
 );
 
 CREATE TABLE IF NOT EXISTS events (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   annotation VARCHAR(2000) NOT NULL,
   category_id BIGINT REFERENCES categories (id) NOT NULL,
   created_on TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
@@ -37,6 +46,8 @@ CREATE TABLE IF NOT EXISTS events (
   request_moderation BOOLEAN NOT NULL,
   state VARCHAR(255) NOT NULL,
   title VARCHAR(120) NOT NULL,
+  confirmed_requests BIGINT NOT NULL DEFAULT 0,
+  synced_views BIGINT NOT NULL DEFAULT 0,
   CONSTRAINT pk_events PRIMARY KEY (id),
   CONSTRAINT check_event_annotation_len CHECK (LENGTH(annotation) >= 20 AND LENGTH(annotation) <= 2000),
   CONSTRAINT check_event_description_len CHECK (LENGTH(description) >= 20 AND LENGTH(description) <= 7000),
@@ -44,17 +55,18 @@ CREATE TABLE IF NOT EXISTS events (
 );
 
 CREATE TABLE IF NOT EXISTS requests (
-  id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+  id BIGINT NOT NULL,
   created TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
   event_id BIGINT REFERENCES events(id) NOT NULL,
   requester_id BIGINT REFERENCES users(id) NOT NULL,
   status VARCHAR(255) NOT NULL,
-  CONSTRAINT pk_requests PRIMARY KEY (id)
+  CONSTRAINT pk_requests PRIMARY KEY (id),
+  CONSTRAINT uq_request_event_requester UNIQUE (event_id, requester_id)
 );
 
 CREATE TABLE IF NOT EXISTS compilations
 (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    id BIGINT NOT NULL,
     pinned BOOLEAN NOT NULL,
     title VARCHAR(120) NOT NULL,
     CONSTRAINT pl_compilations PRIMARY KEY (id)
@@ -69,7 +81,7 @@ CREATE TABLE IF NOT EXISTS compilation_events
 
 CREATE TABLE IF NOT EXISTS comments
 (
-    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY NOT NULL,
+    id           BIGINT PRIMARY KEY NOT NULL,
     text         VARCHAR(800),
     created_time TIMESTAMP WITHOUT TIME ZONE,
     user_id      BIGINT,
@@ -80,4 +92,13 @@ CREATE TABLE IF NOT EXISTS comments
         FOREIGN KEY (user_id) REFERENCES users (id)
 );
 
-CREATE INDEX idx_comments_event_id ON comments(event_id);
\ No newline at end of file
+CREATE INDEX idx_comments_event_id ON comments(event_id);
+CREATE INDEX IF NOT EXISTS idx_events_state_event_date_id ON events (state, event_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_event_date_id ON events (event_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_state_synced_views_id ON events (state, synced_views, id);
+
+CREATE INDEX IF NOT EXISTS idx_events_category_id ON events (category_id);
+
+CREATE INDEX IF NOT EXISTS idx_events_initiator_id ON events (initiator_id);
@@ -0,0 +1,105 @@
+package ru.practicum.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockHttpServletRequest;
+import ru.practicum.EwmService;
+import ru.practicum.StatsClient;
+import ru.practicum.dto.event.EventFilterParamsDto;
+import ru.practicum.enums.EventState;
+import ru.practicum.model.Category;
+import ru.practicum.model.Event;
+import ru.practicum.model.Location;
+import ru.practicum.model.User;
+import ru.practicum.service.AdminEventService;
+import ru.practicum.service.PublicEventService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(classes = EwmService.class, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:ewm-search"})
+class CustomEventRepositoryImplTest {
+    private static final int INITIATORS = 5;
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private AdminEventService adminEventService;
+    @Autowired
+    private PublicEventService publicEventService;
+    @Autowired
+    private EventRepository eventRepo;
+    @Autowired
+    private UserRepository userRepo;
+    @Autowired
+    private CategoryRepository categoryRepo;
+    @Autowired
+    private LocationRepository locationRepo;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private List<Long> categories;
+
+    // У каждого события свои инициатор, категория и место: связи не должны догружаться отдельными запросами
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        categories = new ArrayList<>();
+        for (int i = 0; i < INITIATORS; i++) {
+            User initiator = userRepo.save(User.builder()
+                    .name("Initiator " + i).email("search-initiator" + System.nanoTime() + "@mail.ru").build());
+            Category category = categoryRepo.save(Category.builder().name("Search category " + System.nanoTime()).build());
+            categories.add(category.getId());
+            Location location = locationRepo.save(Location.builder().lat(55.0 + i).lon(37.0 + i).build());
+            eventRepo.save(Event.builder()
+                    .annotation("Annotation of the searched event " + i)
+                    .description("Description of the searched event " + i)
+                    .title("Searched " + i)
+                    .category(category)
+                    .initiator(initiator)
+                    .location(location)
+                    .eventDate(LocalDateTime.now().plusDays(20 + i))
+                    .paid(false)
+                    .participantLimit(0L)
+                    .requestModeration(false)
+                    .state(EventState.PUBLISHED)
+                    .publishedOn(LocalDateTime.now())
+                    .build());
+        }
+        statistics.clear();
+    }
+
+    @Test
+    void adminSearchLoadsEventsWithOneStatement() {
+        List<?> events = adminEventService.getEventsByAdmin(filter());
+
+        assertEquals(INITIATORS, events.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void publicSearchLoadsEventsWithOneStatement() {
+        List<?> events = publicEventService.getEventsByPublic(filter(), new MockHttpServletRequest());
+
+        assertEquals(INITIATORS, events.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private EventFilterParamsDto filter() {
+        EventFilterParamsDto params = new EventFilterParamsDto();
+        params.setCategories(categories);
+        return params;
+    }
+}
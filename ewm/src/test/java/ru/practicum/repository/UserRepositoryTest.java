@@ -0,0 +1,53 @@
+package ru.practicum.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.EwmService;
+import ru.practicum.StatsClient;
+import ru.practicum.model.User;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = EwmService.class, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:ewm-search"})
+class UserRepositoryTest {
+    private static final int USERS = 100;
+    private static final int BATCH_SIZE = 50;
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private UserRepository userRepo;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Идентификаторы из последовательности с шагом 50 не мешают пакетной вставке: на каждые 50 пользователей
+    // приходится не больше одного обращения к последовательности и один пакет INSERT
+    @Test
+    void saveAllInsertsUsersInBatches() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder().name("Batched " + i).email("batched" + i + "@mail.ru").build());
+        }
+        statistics.clear();
+
+        transactionTemplate.executeWithoutResult(status -> userRepo.saveAll(users));
+
+        assertEquals(USERS, statistics.getEntityInsertCount());
+        assertTrue(statistics.getPrepareStatementCount() <= 2 * USERS / BATCH_SIZE);
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import ru.practicum.EwmService;
+import ru.practicum.StatsClient;
+import ru.practicum.enums.EventState;
+import ru.practicum.enums.RequestStatus;
+import ru.practicum.error.exceptions.ConflictException;
+import ru.practicum.model.Category;
+import ru.practicum.model.Event;
+import ru.practicum.model.Location;
+import ru.practicum.model.User;
+import ru.practicum.repository.CategoryRepository;
+import ru.practicum.repository.EventRepository;
+import ru.practicum.repository.LocationRepository;
+import ru.practicum.repository.RequestRepository;
+import ru.practicum.repository.UserRepository;
+import ru.practicum.service.RequestService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(classes = EwmService.class)
+class RequestServiceImplTest {
+    private static final int LIMIT = 10;
+    private static final int PARTICIPANTS = 40;
+    private static final int CANCELS = 8;
+
+    @MockBean
+    private StatsClient statsClient;
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private RequestRepository requestRepo;
+    @Autowired
+    private EventRepository eventRepo;
+    @Autowired
+    private UserRepository userRepo;
+    @Autowired
+    private CategoryRepository categoryRepo;
+    @Autowired
+    private LocationRepository locationRepo;
+
+    // Все участники регистрируются одновременно: подтверждено ровно столько заявок, сколько мест
+    @Test
+    void addDoesNotOverbookEventUnderConcurrentRegistrations() throws Exception {
+        Event event = publishedEvent("stress", LIMIT);
+        List<Long> participants = new ArrayList<>();
+        for (int i = 0; i < PARTICIPANTS; i++) {
+            participants.add(user("participant" + i).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(PARTICIPANTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (Long userId : participants) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    requestService.add(userId, event.getId());
+                    return true;
+                } catch (ConflictException e) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int accepted = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                accepted++;
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        long confirmed = requestRepo.findByEventId(event.getId()).stream()
+                .filter(request -> request.getStatus() == RequestStatus.CONFIRMED)
+                .count();
+        assertEquals(LIMIT, accepted);
+        assertEquals(LIMIT, confirmed);
+        assertEquals(LIMIT, eventRepo.findById(event.getId()).orElseThrow().getConfirmedRequests());
+    }
+
+    // Повторные отмены одной подтверждённой заявки освобождают одно место
+    @Test
+    void cancelReleasesOneSeatUnderConcurrentCancels() throws Exception {
+        Event event = publishedEvent("cancel", LIMIT);
+        User participant = user("canceling");
+        Long requestId = requestService.add(participant.getId(), event.getId()).getId();
+        requestService.add(user("staying").getId(), event.getId());
+
+        ExecutorService executor = Executors.newFixedThreadPool(CANCELS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < CANCELS; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return requestService.cancel(participant.getId(), requestId);
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(RequestStatus.CANCELED, requestRepo.findById(requestId).orElseThrow().getStatus());
+        assertEquals(1, eventRepo.findById(event.getId()).orElseThrow().getConfirmedRequests());
+    }
+
+    private Event publishedEvent(String name, int limit) {
+        User owner = user(name + "-owner");
+        Category category = categoryRepo.save(Category.builder().name(name + " category").build());
+        Location location = locationRepo.save(Location.builder().lat(11.5).lon(22.5).build());
+        return eventRepo.save(Event.builder()
+                .annotation("Annotation of the " + name + " tested event")
+                .description("Description of the " + name + " tested event")
+                .title(name)
+                .category(category)
+                .initiator(owner)
+                .location(location)
+                .eventDate(LocalDateTime.now().plusDays(10))
+                .paid(false)
+                .participantLimit((long) limit)
+                .requestModeration(false)
+                .state(EventState.PUBLISHED)
+                .publishedOn(LocalDateTime.now())
+                .build());
+    }
+
+    private User user(String name) {
+        return userRepo.save(User.builder().name(name).email(name + "@mail.ru").build());
+    }
+}
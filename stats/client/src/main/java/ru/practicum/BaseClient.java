@@ -4,22 +4,33 @@ import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.transport.HttpTransport;
+import ru.practicum.transport.Operation;
 
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public class BaseClient {
-    protected final RestTemplate rest;
+    private final Map<Operation, RestTemplate> rest = new EnumMap<>(Operation.class);
+    private final Executor executor;
 
-    public BaseClient(String serverUrl, RestTemplateBuilder builder) {
-        this.rest = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                .build();
+    public BaseClient(String serverUrl, RestTemplateBuilder builder, HttpTransport transport) {
+        for (Operation operation : Operation.values()) {
+            rest.put(operation, builder
+                    .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
+                    .requestFactory(() -> transport.requestFactory(operation))
+                    .build());
+        }
+        this.executor = transport.getExecutor();
     }
 
-    protected <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
+    protected <T> ResponseEntity<Object> makeAndSendRequest(Operation operation, HttpMethod method, String path,
                                                             @Nullable Map<String, Object> parameters, @Nullable T body) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -28,9 +39,9 @@ public class BaseClient {
         ResponseEntity<Object> serverResponse;
         try {
             if (parameters != null) {
-                serverResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
+                serverResponse = rest.get(operation).exchange(path, method, requestEntity, Object.class, parameters);
             } else {
-                serverResponse = rest.exchange(path, method, requestEntity, Object.class);
+                serverResponse = rest.get(operation).exchange(path, method, requestEntity, Object.class);
             }
         } catch (HttpStatusCodeException e) {
             return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
@@ -38,6 +49,24 @@ public class BaseClient {
         return prepareResponse(serverResponse);
     }
 
+    // Тело ответа читается потоком переданным extractor без промежуточного представления
+    protected <T> T makeAndExtract(Operation operation, HttpMethod method, String path, Map<String, Object> parameters,
+                                   @Nullable Object body, ResponseExtractor<T> extractor) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        RestTemplate template = rest.get(operation);
+        return template.execute(path, method, template.httpEntityCallback(new HttpEntity<>(body, headers)),
+                extractor, parameters);
+    }
+
+    protected <T> CompletableFuture<T> makeAndExtractAsync(Operation operation, HttpMethod method, String path,
+                                                          Map<String, Object> parameters, @Nullable Object body,
+                                                          ResponseExtractor<T> extractor) {
+        return CompletableFuture.supplyAsync(() -> makeAndExtract(operation, method, path, parameters, body, extractor),
+                executor);
+    }
+
     private static ResponseEntity<Object> prepareResponse(ResponseEntity<Object> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
             return response;
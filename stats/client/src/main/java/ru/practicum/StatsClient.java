@@ -1,53 +1,112 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
-import ru.practicum.exception.BadRequestException;
+import org.springframework.web.client.RestClientException;
+import ru.practicum.spool.HitSpool;
+import ru.practicum.transport.HttpTransport;
+import ru.practicum.transport.Operation;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.StringJoiner;
-
-import static java.util.Objects.isNull;
-import static java.util.Objects.nonNull;
+import java.util.concurrent.CompletableFuture;
 
+@Slf4j
 @Service
 public class StatsClient extends BaseClient {
     private static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final String VIEWS_PATH = "/stats/views?unique={unique}";
+
+    private final HitSpool spool;
 
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
-        super(serverUrl, builder);
+    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder,
+                       HttpTransport transport, ObjectProvider<HitSpool> spool) {
+        super(serverUrl, builder, transport);
+        this.spool = spool.getIfAvailable();
     }
 
     public void addHit(String app, String uri, String ip, LocalDateTime timestamp) {
         EndpointHit endpointHit = new EndpointHit(app, uri, ip, mapToString(timestamp));
-        makeAndSendRequest(HttpMethod.POST, "/hit", null, endpointHit);
+        try {
+            if (!makeAndSendRequest(Operation.INGEST, HttpMethod.POST, "/hit", null, endpointHit).getStatusCode().is5xxServerError()) {
+                return;
+            }
+        } catch (RestClientException e) {
+            log.debug("Failed to send hit to stats-service: {}", e.getMessage());
+        }
+        spool(List.of(endpointHit));
     }
 
-    public ResponseEntity<Object> getStats(LocalDateTime start, LocalDateTime end,
-                                           @Nullable List<String> uris, @Nullable Boolean unique) {
-        Map<String, Object> parameters = new HashMap<>();
-        if (isNull(start) || isNull(end) || end.isBefore(start)) {
-            throw new BadRequestException("Please check time limit params: start and end shouldn't be null, end should be after start.");
+    // Хиты, не доставленные из-за недоступности сервера, сохраняются для повторной отправки,
+    // если настроен stats-client.spool.path. Возвращает число сохранённых хитов
+    public int spool(List<EndpointHit> endpointHits) {
+        return spool == null ? 0 : spool.append(endpointHits);
+    }
+
+    public ResponseEntity<Object> addHits(List<EndpointHit> endpointHits) {
+        return makeAndSendRequest(Operation.INGEST, HttpMethod.POST, "/hit/batch", null, endpointHits);
+    }
+
+    // Число просмотров по uri, у каждого uri своё начало окна, конец - текущее время сервера статистики.
+    // Все окна передаются в теле одного запроса, длина URL от их числа не зависит
+    public Map<String, Long> getHitsSince(List<UriWindow> windows, boolean unique) {
+        if (windows.isEmpty()) {
+            return new HashMap<>();
         }
-        parameters.put("start", mapToString(start));
-        parameters.put("end", mapToString(end));
-        StringJoiner pathBuilder = new StringJoiner("&", "/stats?start={start}&end={end}", "");
-        if (nonNull(uris) && !uris.isEmpty()) {
-            uris.forEach(uri -> pathBuilder.add("&uris=" + uri));
+        return makeAndExtract(Operation.QUERY, HttpMethod.POST, VIEWS_PATH, Map.of("unique", unique), windows,
+                response -> readHitsByUri(response.getBody()));
+    }
+
+    public CompletableFuture<Map<String, Long>> getHitsSinceAsync(List<UriWindow> windows, boolean unique) {
+        if (windows.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
         }
-        if (nonNull(unique)) {
-            pathBuilder.add("&unique=" + unique);
+        return makeAndExtractAsync(Operation.QUERY, HttpMethod.POST, VIEWS_PATH, Map.of("unique", unique), windows,
+                response -> readHitsByUri(response.getBody()));
+    }
+
+    // Число просмотров по uri (суммарно по всем app), разбор ответа потоком без создания ViewStats
+    static Map<String, Long> readHitsByUri(InputStream body) throws IOException {
+        Map<String, Long> hits = new HashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Stats response is not an array");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                String uri = null;
+                long count = 0;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("uri".equals(field)) {
+                        uri = parser.getText();
+                    } else if ("hits".equals(field)) {
+                        count = parser.getLongValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                if (uri != null) {
+                    hits.merge(uri, count, Long::sum);
+                }
+            }
         }
-        String path = pathBuilder.toString();
-        return makeAndSendRequest(HttpMethod.GET, path, parameters, null);
+        return hits;
     }
 
     private String mapToString(LocalDateTime timestamp) {
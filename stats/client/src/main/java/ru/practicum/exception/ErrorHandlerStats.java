@@ -2,6 +2,7 @@ package ru.practicum.exception;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.MissingPathVariableException;
 import org.springframework.web.bind.MissingServletRequestParameterException;
@@ -17,12 +18,14 @@ public class ErrorHandlerStats {
     @ExceptionHandler(value = {ConstraintViolationException.class,
             MethodArgumentNotValidException.class,
             MissingPathVariableException.class,
+            HttpMessageNotReadableException.class,
             BadRequestException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handle(Exception e) throws Exception {
         if (e instanceof ConstraintViolationException ||
                 e instanceof MethodArgumentNotValidException ||
                 e instanceof MissingPathVariableException ||
+                e instanceof HttpMessageNotReadableException ||
                 e instanceof BadRequestException) {
             log.debug("Получен статус 400 BAD_REQUEST {}", e.getMessage(), e);
             return new ErrorResponse("Validation error: ", e.getMessage());
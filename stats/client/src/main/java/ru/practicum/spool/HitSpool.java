@@ -0,0 +1,199 @@
+package ru.practicum.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.EndpointHit;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кольцевой буфер хитов в отображённом в память файле фиксированного размера.
+ * Заголовок хранит позиции чтения и записи, поэтому неотправленные хиты переживают перезапуск.
+ * Запись: длина (int) и четыре строки (short длина + UTF-8). Запись не разрывается концом файла:
+ * если в хвосте не хватает места, ставится маркер переноса и запись начинается с начала области данных.
+ * Переполненный спул отклоняет новые хиты.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty("stats-client.spool.path")
+public class HitSpool {
+    private static final int MAGIC = 0x48535031;
+    private static final int HEADER = 64;
+    private static final int WRAP = -1;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int end;
+    private int head;
+    private int tail;
+    private int used;
+
+    public HitSpool(@Value("${stats-client.spool.path}") String path,
+                    @Value("${stats-client.spool.size-mb:64}") int sizeMb) {
+        this.end = sizeMb * 1024 * 1024;
+        try {
+            Path file = Path.of(path).toAbsolutePath();
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open stats spool " + path, e);
+        }
+        if (buffer.getInt(0) == MAGIC && buffer.getInt(4) == end) {
+            head = buffer.getInt(8);
+            tail = buffer.getInt(12);
+            used = buffer.getInt(16);
+            log.info("Открыт спул хитов {}, занято {} байт", path, used);
+        } else {
+            head = HEADER;
+            tail = HEADER;
+            used = 0;
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, end);
+            writeHeader();
+        }
+    }
+
+    // Возвращает число принятых хитов: при нехватке места остаток не записывается
+    public synchronized int append(List<EndpointHit> hits) {
+        int appended = 0;
+        for (EndpointHit hit : hits) {
+            byte[][] fields = {bytes(hit.getApp()), bytes(hit.getUri()), bytes(hit.getIp()), bytes(hit.getTimestamp())};
+            int length = 0;
+            for (byte[] field : fields) {
+                length += Short.BYTES + field.length;
+            }
+            int record = Integer.BYTES + length;
+            boolean wrap = end - tail < record;
+            int gap = wrap ? end - tail : 0;
+            if (used + gap + record > end - HEADER) {
+                break;
+            }
+            if (wrap) {
+                if (gap >= Integer.BYTES) {
+                    buffer.putInt(tail, WRAP);
+                }
+                used += gap;
+                tail = HEADER;
+            }
+            int position = tail + Integer.BYTES;
+            for (byte[] field : fields) {
+                buffer.putShort(position, (short) field.length);
+                buffer.position(position + Short.BYTES);
+                buffer.put(field);
+                position += Short.BYTES + field.length;
+            }
+            buffer.putInt(tail, length);
+            tail = position;
+            used += record;
+            appended++;
+        }
+        // позиции обновляются после данных: оборванная запись не станет видимой
+        writeHeader();
+        return appended;
+    }
+
+    // Чтение до max хитов от начала очереди без удаления, см. commit
+    public synchronized Batch peek(int max) {
+        List<EndpointHit> hits = new ArrayList<>();
+        int position = head;
+        int remaining = used;
+        while (remaining > 0 && hits.size() < max) {
+            int gap = end - position;
+            if (gap < Integer.BYTES || buffer.getInt(position) == WRAP) {
+                remaining -= gap;
+                position = HEADER;
+                continue;
+            }
+            int length = buffer.getInt(position);
+            int field = position + Integer.BYTES;
+            String[] values = new String[4];
+            for (int i = 0; i < values.length; i++) {
+                byte[] value = new byte[buffer.getShort(field) & 0xffff];
+                buffer.position(field + Short.BYTES);
+                buffer.get(value);
+                values[i] = new String(value, StandardCharsets.UTF_8);
+                field += Short.BYTES + value.length;
+            }
+            hits.add(new EndpointHit(values[0], values[1], values[2], values[3]));
+            position += Integer.BYTES + length;
+            remaining -= Integer.BYTES + length;
+        }
+        return new Batch(hits, head, position, used - remaining);
+    }
+
+    // Удаление прочитанного пакета после успешной отправки
+    public synchronized void commit(Batch batch) {
+        if (batch.from != head) {
+            return;
+        }
+        head = batch.to;
+        used -= batch.bytes;
+        if (used == 0) {
+            head = HEADER;
+            tail = HEADER;
+        }
+        writeHeader();
+    }
+
+    public synchronized boolean isEmpty() {
+        return used == 0;
+    }
+
+    public synchronized long getUsedBytes() {
+        return used;
+    }
+
+    public synchronized void flush() {
+        buffer.force();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    private void writeHeader() {
+        buffer.putInt(8, head);
+        buffer.putInt(12, tail);
+        buffer.putInt(16, used);
+    }
+
+    private static byte[] bytes(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xffff) {
+            throw new IllegalArgumentException("Hit field is too long for the spool");
+        }
+        return bytes;
+    }
+
+    public static class Batch {
+        private final List<EndpointHit> hits;
+        private final int from;
+        private final int to;
+        private final int bytes;
+
+        private Batch(List<EndpointHit> hits, int from, int to, int bytes) {
+            this.hits = hits;
+            this.from = from;
+            this.to = to;
+            this.bytes = bytes;
+        }
+
+        public List<EndpointHit> getHits() {
+            return hits;
+        }
+    }
+}
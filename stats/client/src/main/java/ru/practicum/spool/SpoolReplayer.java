@@ -0,0 +1,90 @@
+package ru.practicum.spool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import ru.practicum.StatsClient;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Фоновая досылка хитов из спула пакетами через /hit/batch. При ошибке сервера
+// или недоступности досылка прекращается до следующего запуска, хиты остаются в спуле.
+// Пакет, отклонённый max-attempts запусков подряд, досылается по одному хиту, и хит, который
+// сервер так и не сохранил, отбрасывается: он не блокирует весь спул
+@Slf4j
+@Component
+@ConditionalOnProperty("stats-client.spool.path")
+public class SpoolReplayer {
+    private final HitSpool spool;
+    private final StatsClient statsClient;
+    private final int batchSize;
+    private final int maxAttempts;
+    private int failures;
+    private int isolating;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-spool-replayer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public SpoolReplayer(HitSpool spool,
+                         StatsClient statsClient,
+                         @Value("${stats-client.spool.batch-size:500}") int batchSize,
+                         @Value("${stats-client.spool.max-attempts:10}") int maxAttempts,
+                         @Value("${stats-client.spool.replay-interval-ms:5000}") long replayIntervalMs) {
+        this.spool = spool;
+        this.statsClient = statsClient;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        executor.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void replay() {
+        try {
+            while (!spool.isEmpty()) {
+                HitSpool.Batch batch = spool.peek(isolating > 0 ? 1 : batchSize);
+                ResponseEntity<Object> response = statsClient.addHits(batch.getHits());
+                if (response.getStatusCode().is5xxServerError()) {
+                    if (++failures < maxAttempts) {
+                        return;
+                    }
+                    failures = 0;
+                    if (isolating == 0) {
+                        isolating = batch.getHits().size();
+                        log.warn("Stats-service failed {} spooled hits {} times, replaying them one by one",
+                                batch.getHits().size(), maxAttempts);
+                        return;
+                    }
+                    log.error("Dropped a spooled hit of {} after {} failed attempts",
+                            batch.getHits().get(0).getUri(), maxAttempts);
+                    spool.commit(batch);
+                    isolating--;
+                    continue;
+                }
+                failures = 0;
+                if (isolating > 0) {
+                    isolating--;
+                }
+                if (response.getStatusCode().is4xxClientError()) {
+                    log.warn("Stats-service rejected {} spooled hits with status {}", batch.getHits().size(),
+                            response.getStatusCode());
+                }
+                spool.commit(batch);
+            }
+        } catch (RuntimeException e) {
+            log.debug("Stats-service is still unavailable: {}", e.getMessage());
+        } finally {
+            spool.flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.transport;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Общий пул HTTP/1.1 соединений к stats-service с keep-alive, ответами в gzip
+// и отдельным таймаутом ответа для каждого вида обращений.
+// Асинхронные вызовы выполняются на ограниченном пуле потоков
+@Component
+public class HttpTransport {
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+    private final ExecutorService executor;
+    private final Map<Operation, Duration> readTimeouts = new EnumMap<>(Operation.class);
+    private final Duration connectTimeout;
+    private final Duration acquireTimeout;
+
+    public HttpTransport(ObjectProvider<MeterRegistry> registry,
+                         @Value("${stats-client.connect-timeout:1s}") Duration connectTimeout,
+                         @Value("${stats-client.pool.max-total:50}") int maxTotal,
+                         @Value("${stats-client.pool.acquire-timeout:500ms}") Duration acquireTimeout,
+                         @Value("${stats-client.keep-alive:30s}") Duration keepAlive,
+                         @Value("${stats-client.timeout.ingest:2s}") Duration ingestTimeout,
+                         @Value("${stats-client.timeout.query:1s}") Duration queryTimeout,
+                         @Value("${stats-client.async.threads:4}") int asyncThreads,
+                         @Value("${stats-client.async.queue-capacity:1000}") int asyncQueueCapacity) {
+        this.connectTimeout = connectTimeout;
+        this.acquireTimeout = acquireTimeout;
+        readTimeouts.put(Operation.INGEST, ingestTimeout);
+        readTimeouts.put(Operation.QUERY, queryTimeout);
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        // все обращения идут на один сервер, поэтому лимит маршрута равен общему
+        connectionManager.setDefaultMaxPerRoute(maxTotal);
+        connectionManager.setValidateAfterInactivity(2000);
+        // сжатие ответов (Accept-Encoding: gzip) HttpClient включает по умолчанию
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long advertised = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return advertised > 0 ? Math.min(advertised, keepAlive.toMillis()) : keepAlive.toMillis();
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        AtomicInteger threadNumber = new AtomicInteger();
+        // При заполненной очереди задача отклоняется сразу: выполнение в вызывающем потоке задержало бы
+        // обработку запроса пользователя, а молча отброшенная задача оставила бы future незавершённым
+        executor = new ThreadPoolExecutor(asyncThreads, asyncThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(asyncQueueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "stats-client-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        registry.ifAvailable(meters ->
+                new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "stats-client").bindTo(meters));
+    }
+
+    public ClientHttpRequestFactory requestFactory(Operation operation) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        factory.setConnectTimeout((int) connectTimeout.toMillis());
+        factory.setConnectionRequestTimeout((int) acquireTimeout.toMillis());
+        factory.setReadTimeout((int) readTimeouts.get(operation).toMillis());
+        return factory;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        executor.shutdownNow();
+        httpClient.close();
+    }
+}
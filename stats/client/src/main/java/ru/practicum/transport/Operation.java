@@ -0,0 +1,7 @@
+package ru.practicum.transport;
+
+// Вид обращения к stats-service, у каждого свой таймаут ответа
+public enum Operation {
+    INGEST,
+    QUERY
+}
@@ -0,0 +1,87 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Разбор ответа stats-service с просмотрами событий: прежний путь через дерево Object,
+// строку и повторный разбор в ViewStats против потокового разбора StatsClient.
+// Запуск: main из тестового classpath модуля, аллокации - gc.alloc.rate.norm
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsResponseDecodingBenchmark {
+    private static final TypeReference<List<ViewStats>> VIEW_STATS_LIST = new TypeReference<>() {
+    };
+
+    @Param({"10", "1000"})
+    private int events;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] response;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<ViewStats> stats = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            stats.add(new ViewStats("ewm-main-service", "/events/" + i, (long) i * 7));
+        }
+        response = mapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public Map<String, Long> treeRoundTrip() throws IOException {
+        Object body = mapper.readValue(response, Object.class);
+        String value = mapper.writeValueAsString(body);
+        List<ViewStats> stats = mapper.readValue(value, VIEW_STATS_LIST);
+        Map<String, Long> hits = new HashMap<>();
+        stats.forEach(stat -> hits.merge(stat.getUri(), stat.getHits(), Long::sum));
+        return hits;
+    }
+
+    @Benchmark
+    public Map<String, Long> treeConvert() throws IOException {
+        Object body = mapper.readValue(response, Object.class);
+        List<ViewStats> stats = mapper.convertValue(body, VIEW_STATS_LIST);
+        Map<String, Long> hits = new HashMap<>();
+        stats.forEach(stat -> hits.merge(stat.getUri(), stat.getHits(), Long::sum));
+        return hits;
+    }
+
+    @Benchmark
+    public Map<String, Long> streaming() throws IOException {
+        return StatsClient.readHitsByUri(new ByteArrayInputStream(response));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StatsResponseDecodingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -3,6 +3,9 @@ package ru.practicum;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import lombok.*;
 
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 
 @Data
@@ -10,12 +13,16 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor(force = true)
 public class HitDto {
-    @NonNull
+    // Длины ограничены колонками словарей apps.name и uris.uri
+    @NotBlank
+    @Size(max = 255)
     private String app;
-    @NonNull
+    @NotBlank
+    @Size(max = 512)
     private String uri;
-    @NonNull
+    @NotBlank
     private String ip;
+    @NotNull
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime timestamp;
 }
\ No newline at end of file
@@ -2,16 +2,21 @@ package ru.practicum.controller;
 
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.HitDto;
+import ru.practicum.UriWindow;
+import ru.practicum.model.HitBatchResult;
 import ru.practicum.model.Stats;
 import ru.practicum.service.StatsService;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
+@Validated
 public class StatsController {
     private static final String FORMAT = "yyyy-MM-dd HH:mm:ss";
     private final StatsService service;
@@ -26,15 +31,38 @@ public class StatsController {
         service.save(hitDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(value = HttpStatus.CREATED)
+    public HitBatchResult saveHits(@RequestBody List<@Valid HitDto> hitDtos) {
+        return service.saveAll(hitDtos);
+    }
+
     @GetMapping("/stats")
     public List<Stats> getStats(@RequestParam @DateTimeFormat(pattern = FORMAT) LocalDateTime start,
                                 @RequestParam @DateTimeFormat(pattern = FORMAT) LocalDateTime end,
                                 @RequestParam(defaultValue = "") List<String> uris,
-                                @RequestParam(defaultValue = "false") Boolean unique) {
-        if (unique) {
+                                @RequestParam(defaultValue = "false") Boolean unique,
+                                @RequestParam(defaultValue = "false") Boolean approximate) {
+        if (unique && approximate) {
+            return service.getApproximateUniqueStats(start, end, uris);
+        } else if (unique) {
             return service.getUniqueStats(start, end, uris);
         } else {
             return service.getStats(start, end, uris);
         }
     }
+
+    @GetMapping("/stats/top")
+    public List<Stats> getTopStats(@RequestParam @DateTimeFormat(pattern = FORMAT) LocalDateTime start,
+                                   @RequestParam @DateTimeFormat(pattern = FORMAT) LocalDateTime end,
+                                   @RequestParam(defaultValue = "10") @Positive int limit) {
+        return service.getTopStats(start, end, limit);
+    }
+
+    @PostMapping("/stats/views")
+    public List<Stats> getViews(@RequestBody List<@Valid UriWindow> windows,
+                                @RequestParam(required = false) @DateTimeFormat(pattern = FORMAT) LocalDateTime end,
+                                @RequestParam(defaultValue = "false") Boolean unique) {
+        return service.getViews(windows, end == null ? LocalDateTime.now() : end, unique);
+    }
 }
@@ -4,14 +4,48 @@ import lombok.experimental.UtilityClass;
 import ru.practicum.HitDto;
 import ru.practicum.model.Hit;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 @UtilityClass
 public class HitMapper {
-    public Hit toHit(HitDto hitDto) {
+    private static final Pattern IPV4 = Pattern.compile("(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})\\.(\\d{1,3})");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    public Hit toHit(HitDto hitDto, int appId, int uriId) {
         return Hit.builder()
-                .app(hitDto.getApp())
-                .uri(hitDto.getUri())
-                .ip(hitDto.getIp())
+                .appId(appId)
+                .uriId(uriId)
+                .ip(encodeIp(hitDto.getIp()))
                 .timestamp(hitDto.getTimestamp())
                 .build();
     }
+
+    // Адрес разбирается только как литерал, без обращения к DNS: IPv6 с двоеточием
+    // InetAddress не резолвит, IPv4 разбирается вручную
+    public byte[] encodeIp(String ip) {
+        Matcher ipv4 = IPV4.matcher(ip);
+        if (ipv4.matches()) {
+            byte[] address = new byte[4];
+            for (int i = 0; i < address.length; i++) {
+                int octet = Integer.parseInt(ipv4.group(i + 1));
+                if (octet > 255) {
+                    return ip.getBytes(StandardCharsets.UTF_8);
+                }
+                address[i] = (byte) octet;
+            }
+            return address;
+        }
+        if (IPV6.matcher(ip).matches()) {
+            try {
+                return InetAddress.getByName(ip).getAddress();
+            } catch (UnknownHostException e) {
+                // не адрес - сохраняется как есть
+            }
+        }
+        return ip.getBytes(StandardCharsets.UTF_8);
+    }
 }
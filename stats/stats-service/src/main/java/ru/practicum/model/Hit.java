@@ -16,10 +16,14 @@ import java.time.LocalDateTime;
 @Table(name = "hits")
 public class Hit {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Последовательность общая с пакетной вставкой через JDBC, которая берёт id из значения по умолчанию,
+    // поэтому шаг 1: пакетные вставки хитов выполняются в CustomStatsRepositoryImpl.insertAll
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hits_id_seq")
+    @SequenceGenerator(name = "hits_id_seq", sequenceName = "hits_id_seq", allocationSize = 1)
     private long id;
-    private String app;
-    private String uri;
-    private String ip;
+    private int appId;
+    private int uriId;
+    // IPv4 - 4 байта, IPv6 - 16 байт, прочие значения - UTF-8
+    private byte[] ip;
     private LocalDateTime timestamp;
 }
@@ -0,0 +1,15 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Количество хитов в разрезе ключей словарей app и uri
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HitCount {
+    private int appId;
+    private int uriId;
+    private long hits;
+}
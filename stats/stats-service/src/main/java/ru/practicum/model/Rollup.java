@@ -0,0 +1,30 @@
+package ru.practicum.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+public enum Rollup {
+    HOUR("hits_hour", ChronoUnit.HOURS),
+    MINUTE("hits_minute", ChronoUnit.MINUTES);
+
+    private final String table;
+    private final ChronoUnit unit;
+
+    Rollup(String table, ChronoUnit unit) {
+        this.table = table;
+        this.unit = unit;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
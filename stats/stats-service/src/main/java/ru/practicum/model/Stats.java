@@ -1,5 +1,6 @@
 package ru.practicum.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -13,4 +14,11 @@ public class Stats {
     private String app;
     private String uri;
     private long hits;
+    // Стандартная относительная ошибка приближённой оценки, для точных значений не заполняется
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double relativeError;
+
+    public Stats(String app, String uri, long hits) {
+        this(app, uri, hits, null);
+    }
 }
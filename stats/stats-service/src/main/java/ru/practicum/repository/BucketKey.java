@@ -0,0 +1,22 @@
+package ru.practicum.repository;
+
+import lombok.Value;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+// Ключи упорядочены, чтобы параллельные пакеты блокировали строки в одном порядке
+@Value
+class BucketKey implements Comparable<BucketKey> {
+    private static final Comparator<BucketKey> ORDER = Comparator.comparingInt(BucketKey::getAppId)
+            .thenComparingInt(BucketKey::getUriId)
+            .thenComparing(BucketKey::getBucket);
+    int appId;
+    int uriId;
+    LocalDateTime bucket;
+
+    @Override
+    public int compareTo(BucketKey other) {
+        return ORDER.compare(this, other);
+    }
+}
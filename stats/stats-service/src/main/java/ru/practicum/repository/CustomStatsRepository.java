@@ -0,0 +1,18 @@
+package ru.practicum.repository;
+
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+public interface CustomStatsRepository {
+
+    int insertAll(List<Hit> hits);
+
+    void forEachHit(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, Consumer<Hit> consumer);
+
+    List<HitCount> countSince(Map<Integer, LocalDateTime> sinceByUriId, LocalDateTime to, boolean unique);
+}
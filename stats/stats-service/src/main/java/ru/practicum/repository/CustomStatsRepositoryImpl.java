@@ -0,0 +1,116 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Repository
+@RequiredArgsConstructor
+public class CustomStatsRepositoryImpl implements CustomStatsRepository {
+    private static final String INSERT_HIT = "INSERT INTO hits (app_id, uri_id, ip, timestamp) VALUES (?, ?, ?, ?)";
+    private static final int WINDOWS_PER_QUERY = 1000;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    @Value("${stats.hit.batch-size}")
+    private int batchSize;
+
+    // Пакетная вставка хитов одним JDBC batch на каждые batchSize строк
+    @Override
+    public int insertAll(List<Hit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setBytes(3, hit.getIp());
+            if (hit.getTimestamp() != null) {
+                ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+            } else {
+                ps.setNull(4, Types.TIMESTAMP);
+            }
+        });
+        int accepted = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                accepted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+        }
+        return accepted;
+    }
+
+    // Потоковый обход хитов полуинтервала [from, to) без загрузки всего окна в память
+    @Override
+    public void forEachHit(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, Consumer<Hit> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, ip, timestamp FROM hits WHERE timestamp >= :from AND timestamp < :to");
+        if (!uriIds.isEmpty()) {
+            sql.append(" AND uri_id IN (:uriIds)");
+            params.addValue("uriIds", uriIds);
+        }
+        namedJdbcTemplate.query(sql.toString(), params, rs -> {
+            consumer.accept(Hit.builder()
+                    .appId(rs.getInt("app_id"))
+                    .uriId(rs.getInt("uri_id"))
+                    .ip(rs.getBytes("ip"))
+                    .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                    .build());
+        });
+    }
+
+    // Хиты каждого uri считаются со своего начала окна до общего конца to (не включая) одним запросом:
+    // окна передаются списком VALUES, общий диапазон времени оставлен для отсечения секций
+    @Override
+    public List<HitCount> countSince(Map<Integer, LocalDateTime> sinceByUriId, LocalDateTime to, boolean unique) {
+        if (sinceByUriId.isEmpty()) {
+            return List.of();
+        }
+        List<Map.Entry<Integer, LocalDateTime>> windows = new ArrayList<>(sinceByUriId.entrySet());
+        List<HitCount> counts = new ArrayList<>();
+        for (int from = 0; from < windows.size(); from += WINDOWS_PER_QUERY) {
+            counts.addAll(countSince(windows.subList(from, Math.min(from + WINDOWS_PER_QUERY, windows.size())), to, unique));
+        }
+        return counts;
+    }
+
+    private List<HitCount> countSince(List<Map.Entry<Integer, LocalDateTime>> windows, LocalDateTime to, boolean unique) {
+        MapSqlParameterSource params = new MapSqlParameterSource("to", Timestamp.valueOf(to));
+        StringBuilder values = new StringBuilder();
+        LocalDateTime from = to;
+        for (int i = 0; i < windows.size(); i++) {
+            Map.Entry<Integer, LocalDateTime> window = windows.get(i);
+            values.append(i == 0 ? "" : ", ")
+                    .append("(CAST(:uri").append(i).append(" AS INTEGER), CAST(:since").append(i).append(" AS TIMESTAMP))");
+            params.addValue("uri" + i, window.getKey());
+            params.addValue("since" + i, Timestamp.valueOf(window.getValue()));
+            if (window.getValue().isBefore(from)) {
+                from = window.getValue();
+            }
+        }
+        params.addValue("from", Timestamp.valueOf(from));
+        String sql = "SELECT h.app_id, h.uri_id, " + (unique ? "COUNT(DISTINCT h.ip)" : "COUNT(h.ip)") + " AS hits " +
+                "FROM hits h JOIN (VALUES " + values + ") AS w (uri_id, since) " +
+                "ON h.uri_id = w.uri_id AND h.timestamp >= w.since " +
+                "WHERE h.timestamp >= :from AND h.timestamp < :to " +
+                "GROUP BY h.app_id, h.uri_id";
+        return Collections.unmodifiableList(namedJdbcTemplate.query(sql, params, (rs, rowNum) ->
+                new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits"))));
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+// Словари app и uri: строки хранятся один раз, в хитах и агрегатах - целочисленные ключи.
+// Оба направления кэшируются в памяти процесса, словари только растут
+@Repository
+public class DictionaryRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final UriTrie uriTrie = new UriTrie();
+    private final Dictionary apps = new Dictionary("apps", "name", (id, value) -> {
+    });
+    private final Dictionary uris = new Dictionary("uris", "uri", (id, value) -> uriTrie.add(value, id));
+    private int indexedUriId;
+
+    public DictionaryRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Новые значения вставляются одним пакетом и фиксируются сразу, поэтому вызывается до транзакции
+    // записи хитов: её откат не оставит в кэше ключ, которого нет в базе, а пакет не держит второе соединение
+    public void createApps(Collection<String> values) {
+        apps.create(values);
+    }
+
+    public void createUris(Collection<String> values) {
+        uris.create(values);
+    }
+
+    public int getAppId(String app) {
+        return apps.getOrCreateId(app);
+    }
+
+    public int getUriId(String uri) {
+        return uris.getOrCreateId(uri);
+    }
+
+    public String getApp(int id) {
+        return apps.getValue(id);
+    }
+
+    public String getUri(int id) {
+        return uris.getValue(id);
+    }
+
+    // Ключи только уже известных uri, новые значения не создаются.
+    // Значения с '*' - шаблоны, они раскрываются по префиксному дереву uri
+    public List<Integer> findUriIds(Collection<String> values) {
+        List<String> exact = new ArrayList<>(values.size());
+        List<String> patterns = new ArrayList<>();
+        for (String value : values) {
+            (value.indexOf(UriTrie.WILDCARD) < 0 ? exact : patterns).add(value);
+        }
+        if (patterns.isEmpty()) {
+            return uris.findIds(exact);
+        }
+        Set<Integer> ids = new LinkedHashSet<>(uris.findIds(exact));
+        refreshUriTrie();
+        for (String pattern : patterns) {
+            ids.addAll(uriTrie.match(pattern));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    // Дерево догружает uri, добавленные после предыдущего обращения, в том числе другими экземплярами
+    private synchronized void refreshUriTrie() {
+        jdbcTemplate.query("SELECT id, uri FROM uris WHERE id > :id ORDER BY id",
+                new MapSqlParameterSource("id", indexedUriId), rs -> {
+                    uriTrie.add(rs.getString("uri"), rs.getInt("id"));
+                    indexedUriId = rs.getInt("id");
+                });
+    }
+
+    private class Dictionary {
+        private final String table;
+        private final String column;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> values = new ConcurrentHashMap<>();
+        private final BiConsumer<Integer, String> onLoad;
+
+        Dictionary(String table, String column, BiConsumer<Integer, String> onLoad) {
+            this.table = table;
+            this.column = column;
+            this.onLoad = onLoad;
+        }
+
+        int getOrCreateId(String value) {
+            Integer id = ids.get(value);
+            if (id != null) {
+                return id;
+            }
+            create(List.of(value));
+            return ids.get(value);
+        }
+
+        void create(Collection<String> requested) {
+            Set<String> missing = new LinkedHashSet<>();
+            for (String value : requested) {
+                if (!ids.containsKey(value)) {
+                    missing.add(value);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+            MapSqlParameterSource[] params = missing.stream()
+                    .map(value -> new MapSqlParameterSource("value", value))
+                    .toArray(MapSqlParameterSource[]::new);
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (" + column + ") VALUES (:value) ON CONFLICT DO NOTHING",
+                    params);
+            findIds(missing);
+        }
+
+        String getValue(int id) {
+            String value = values.get(id);
+            if (value != null) {
+                return value;
+            }
+            value = jdbcTemplate.queryForObject("SELECT " + column + " FROM " + table + " WHERE id = :id",
+                    new MapSqlParameterSource("id", id), String.class);
+            put(id, value);
+            return value;
+        }
+
+        List<Integer> findIds(Collection<String> requested) {
+            List<Integer> found = new ArrayList<>(requested.size());
+            List<String> missing = new ArrayList<>();
+            for (String value : requested) {
+                Integer id = ids.get(value);
+                if (id != null) {
+                    found.add(id);
+                } else {
+                    missing.add(value);
+                }
+            }
+            if (!missing.isEmpty()) {
+                jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE " + column + " IN (:values)",
+                        new MapSqlParameterSource("values", missing), rs -> {
+                            put(rs.getInt("id"), rs.getString(column));
+                            found.add(rs.getInt("id"));
+                        });
+            }
+            return found;
+        }
+
+        private void put(Integer id, String value) {
+            ids.put(value, id);
+            values.put(id, value);
+            onLoad.accept(id, value);
+        }
+    }
+}
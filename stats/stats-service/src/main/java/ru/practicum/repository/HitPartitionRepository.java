@@ -0,0 +1,88 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Дневные секции таблицы hits в PostgreSQL: hits_pYYYYMMDD на полуинтервал [день, день + 1).
+// На остальных платформах таблица не секционирована и старые хиты удаляются DELETE
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class HitPartitionRepository {
+    private static final String PREFIX = "hits_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    @Value("${spring.sql.init.platform}")
+    private String platform;
+
+    public boolean isPartitioned() {
+        return "postgresql".equals(platform);
+    }
+
+    public Set<LocalDate> findPartitionDays() {
+        Set<LocalDate> days = new TreeSet<>();
+        jdbcTemplate.query("SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "JOIN pg_class p ON p.oid = i.inhparent " +
+                        "WHERE p.relname = 'hits' AND c.relname LIKE 'hits\\_p%'",
+                rs -> {
+                    days.add(LocalDate.parse(rs.getString("relname").substring(PREFIX.length()), SUFFIX));
+                });
+        return days;
+    }
+
+    // Секция создаётся отдельной таблицей, в неё переносятся хиты этого дня из секции
+    // по умолчанию, и только затем она подключается: иначе PostgreSQL отклонит секцию,
+    // диапазон которой уже занят строками в секции по умолчанию
+    @Transactional
+    public void createPartition(LocalDate day) {
+        String table = PREFIX + day.format(SUFFIX);
+        MapSqlParameterSource range = range(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        jdbcTemplate.update("LOCK TABLE hits_default IN EXCLUSIVE MODE", range);
+        jdbcTemplate.update("CREATE TABLE " + table + " (LIKE hits INCLUDING DEFAULTS INCLUDING CONSTRAINTS)", range);
+        int moved = jdbcTemplate.update("INSERT INTO " + table + " SELECT * FROM hits_default " +
+                "WHERE timestamp >= :from AND timestamp < :to", range);
+        jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp >= :from AND timestamp < :to", range);
+        jdbcTemplate.update("ALTER TABLE hits ATTACH PARTITION " + table +
+                " FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')", range);
+        log.info("Создана секция {}, перенесено хитов: {}", table, moved);
+    }
+
+    // Удаление хитов и агрегатов до cutoff, выровненного по началу дня
+    @Transactional
+    public void deleteBefore(LocalDate cutoff) {
+        MapSqlParameterSource params = new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff.atStartOfDay()));
+        if (isPartitioned()) {
+            for (LocalDate day : findPartitionDays()) {
+                if (day.isBefore(cutoff)) {
+                    jdbcTemplate.update("DROP TABLE " + PREFIX + day.format(SUFFIX), params);
+                    log.info("Удалена секция {}{}", PREFIX, day.format(SUFFIX));
+                }
+            }
+            jdbcTemplate.update("DELETE FROM hits_default WHERE timestamp < :cutoff", params);
+        } else {
+            jdbcTemplate.update("DELETE FROM hits WHERE timestamp < :cutoff", params);
+        }
+        for (String table : new String[]{"hits_minute", "hits_hour", "hits_hll"}) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE bucket < :cutoff", params);
+        }
+    }
+
+    private static MapSqlParameterSource range(LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+}
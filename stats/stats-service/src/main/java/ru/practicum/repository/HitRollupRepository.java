@@ -0,0 +1,82 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.Rollup;
+import ru.practicum.model.HitCount;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class HitRollupRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Инкрементальное обновление агрегатов: строка бакета создаётся при необходимости,
+    // затем счётчик увеличивается атомарным UPDATE, поэтому опоздавшие хиты попадают в свой бакет
+    public void add(List<Hit> hits) {
+        for (Rollup rollup : Rollup.values()) {
+            Map<BucketKey, Long> increments = aggregate(rollup, hits);
+            if (increments.isEmpty()) {
+                continue;
+            }
+            List<MapSqlParameterSource> params = new ArrayList<>(increments.size());
+            increments.forEach((key, count) -> params.add(new MapSqlParameterSource()
+                    .addValue("appId", key.getAppId())
+                    .addValue("uriId", key.getUriId())
+                    .addValue("bucket", Timestamp.valueOf(key.getBucket()))
+                    .addValue("hits", count)));
+            MapSqlParameterSource[] batch = params.toArray(new MapSqlParameterSource[0]);
+            jdbcTemplate.batchUpdate("INSERT INTO " + rollup.getTable() + " (app_id, uri_id, bucket, hits) " +
+                    "VALUES (:appId, :uriId, :bucket, 0) ON CONFLICT DO NOTHING", batch);
+            jdbcTemplate.batchUpdate("UPDATE " + rollup.getTable() + " SET hits = hits + :hits " +
+                    "WHERE app_id = :appId AND uri_id = :uriId AND bucket = :bucket", batch);
+        }
+    }
+
+    // Сумма хитов по бакетам в полуинтервале [from, to)
+    public List<HitCount> sum(Rollup rollup, LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, SUM(hits) AS hits FROM ")
+                .append(rollup.getTable())
+                .append(" WHERE bucket >= :from AND bucket < :to");
+        if (!uriIds.isEmpty()) {
+            sql.append(" AND uri_id IN (:uriIds)");
+            params.addValue("uriIds", uriIds);
+        }
+        sql.append(" GROUP BY app_id, uri_id");
+        return jdbcTemplate.query(sql.toString(), params, (rs, rowNum) ->
+                new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+    }
+
+    // Счётчики по бакетам начиная с from, в порядке бакетов
+    public Map<LocalDateTime, List<HitCount>> findByBucket(Rollup rollup, LocalDateTime from) {
+        Map<LocalDateTime, List<HitCount>> buckets = new TreeMap<>();
+        jdbcTemplate.query("SELECT app_id, uri_id, bucket, hits FROM " + rollup.getTable() + " WHERE bucket >= :from",
+                new MapSqlParameterSource("from", Timestamp.valueOf(from)), rs -> {
+                    buckets.computeIfAbsent(rs.getTimestamp("bucket").toLocalDateTime(), bucket -> new ArrayList<>())
+                            .add(new HitCount(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hits")));
+                });
+        return buckets;
+    }
+
+    private Map<BucketKey, Long> aggregate(Rollup rollup, List<Hit> hits) {
+        Map<BucketKey, Long> increments = new TreeMap<>();
+        for (Hit hit : hits) {
+            if (hit.getTimestamp() != null) {
+                increments.merge(new BucketKey(hit.getAppId(), hit.getUriId(), rollup.floor(hit.getTimestamp())), 1L, Long::sum);
+            }
+        }
+        return increments;
+    }
+}
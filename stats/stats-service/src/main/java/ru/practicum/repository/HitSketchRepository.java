@@ -0,0 +1,110 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.Hit;
+import ru.practicum.model.Rollup;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+@Repository
+@RequiredArgsConstructor
+public class HitSketchRepository {
+    public static final Rollup BUCKET = Rollup.HOUR;
+    private static final byte[] EMPTY_SKETCH = new HyperLogLog().toBytes();
+    private static final int KEYS_PER_QUERY = 500;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Скетч IP по часовым бакетам: недостающие строки создаются пустыми, затем все строки пакета
+    // блокируются одним запросом в порядке ключей, объединяются со скетчами пакета в памяти
+    // и перезаписываются одним пакетным UPDATE - только те, в которых изменился хотя бы один регистр
+    public void add(List<Hit> hits) {
+        Map<BucketKey, HyperLogLog> sketches = aggregate(hits);
+        if (sketches.isEmpty()) {
+            return;
+        }
+        List<BucketKey> keys = new ArrayList<>(sketches.keySet());
+        List<MapSqlParameterSource> inserts = new ArrayList<>(keys.size());
+        keys.forEach(key -> inserts.add(params(key, EMPTY_SKETCH)));
+        jdbcTemplate.batchUpdate("INSERT INTO hits_hll (app_id, uri_id, bucket, sketch) " +
+                "VALUES (:appId, :uriId, :bucket, :sketch) ON CONFLICT DO NOTHING", inserts.toArray(new MapSqlParameterSource[0]));
+        List<MapSqlParameterSource> updates = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += KEYS_PER_QUERY) {
+            lockAndMerge(keys.subList(from, Math.min(from + KEYS_PER_QUERY, keys.size())), sketches, updates);
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE hits_hll SET sketch = :sketch " +
+                    "WHERE app_id = :appId AND uri_id = :uriId AND bucket = :bucket", updates.toArray(new MapSqlParameterSource[0]));
+        }
+    }
+
+    private void lockAndMerge(List<BucketKey> keys, Map<BucketKey, HyperLogLog> sketches,
+                              List<MapSqlParameterSource> updates) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringJoiner values = new StringJoiner(", ");
+        for (int i = 0; i < keys.size(); i++) {
+            BucketKey key = keys.get(i);
+            values.add("(:appId" + i + ", :uriId" + i + ", :bucket" + i + ")");
+            params.addValue("appId" + i, key.getAppId())
+                    .addValue("uriId" + i, key.getUriId())
+                    .addValue("bucket" + i, Timestamp.valueOf(key.getBucket()));
+        }
+        jdbcTemplate.query("SELECT app_id, uri_id, bucket, sketch FROM hits_hll " +
+                "WHERE (app_id, uri_id, bucket) IN (" + values + ") " +
+                "ORDER BY app_id, uri_id, bucket FOR UPDATE", params, rs -> {
+                    BucketKey key = new BucketKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getTimestamp("bucket").toLocalDateTime());
+                    HyperLogLog stored = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+                    if (stored.merge(sketches.get(key))) {
+                        updates.add(params(key, stored.toBytes()));
+                    }
+                });
+    }
+
+    // Объединение скетчей бакетов из полуинтервала [from, to) в разрезе app и uri
+    public void merge(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, Map<List<Integer>, HyperLogLog> into) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        StringBuilder sql = new StringBuilder("SELECT app_id, uri_id, sketch FROM hits_hll WHERE bucket >= :from AND bucket < :to");
+        if (!uriIds.isEmpty()) {
+            sql.append(" AND uri_id IN (:uriIds)");
+            params.addValue("uriIds", uriIds);
+        }
+        jdbcTemplate.query(sql.toString(), params, rs -> {
+            HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+            into.merge(List.of(rs.getInt("app_id"), rs.getInt("uri_id")), sketch, (total, part) -> {
+                total.merge(part);
+                return total;
+            });
+        });
+    }
+
+    private static MapSqlParameterSource params(BucketKey key, byte[] sketch) {
+        return new MapSqlParameterSource()
+                .addValue("appId", key.getAppId())
+                .addValue("uriId", key.getUriId())
+                .addValue("bucket", Timestamp.valueOf(key.getBucket()))
+                .addValue("sketch", sketch);
+    }
+
+    private Map<BucketKey, HyperLogLog> aggregate(List<Hit> hits) {
+        Map<BucketKey, HyperLogLog> sketches = new TreeMap<>();
+        for (Hit hit : hits) {
+            if (hit.getTimestamp() != null) {
+                sketches.computeIfAbsent(new BucketKey(hit.getAppId(), hit.getUriId(), BUCKET.floor(hit.getTimestamp())),
+                        key -> new HyperLogLog()).add(hit.getIp());
+            }
+        }
+        return sketches;
+    }
+}
@@ -3,42 +3,40 @@ package ru.practicum.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import ru.practicum.model.Hit;
-import ru.practicum.model.Stats;
+import ru.practicum.model.HitCount;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
-public interface StatsRepository extends JpaRepository<Hit, Long> {
+public interface StatsRepository extends JpaRepository<Hit, Long>, CustomStatsRepository {
     // Получение статистики с учетом уникальных IP по временному промежутку и URI
-    @Query(value = "SELECT NEW ru.practicum.model.Stats(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
+    @Query(value = "SELECT NEW ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
             "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN ?1 AND ?2 AND h.uri IN ?3 " +
-            "GROUP BY h.app, h.uri " +
+            "WHERE h.timestamp BETWEEN ?1 AND ?2 AND h.uriId IN ?3 " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Stats> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+    List<HitCount> getUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
 
 
-    // Получение статистики без учета уникальных IP по временному промежутку и URI
-    @Query(value = "SELECT NEW ru.practicum.model.Stats(h.app, h.uri, COUNT(h.ip)) " +
+    // Получение статистики без учета уникальных IP по полуинтервалу [from, to) и URI
+    @Query(value = "SELECT NEW ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(h.ip)) " +
             "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN ?1 AND ?2 AND h.uri IN ?3 " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<Stats> getNotUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+            "WHERE h.timestamp >= ?1 AND h.timestamp < ?2 AND h.uriId IN ?3 " +
+            "GROUP BY h.appId, h.uriId")
+    List<HitCount> getNotUniqueStats(LocalDateTime from, LocalDateTime to, List<Integer> uriIds);
 
     // Получение статистики с учетом уникальных IP по временному промежутку без URI
-    @Query(value = "SELECT NEW ru.practicum.model.Stats(h.app, h.uri, COUNT(DISTINCT h.ip)) " +
+    @Query(value = "SELECT NEW ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
             "FROM Hit h " +
             "WHERE h.timestamp BETWEEN ?1 AND ?2 " +
-            "GROUP BY h.app, h.uri " +
+            "GROUP BY h.appId, h.uriId " +
             "ORDER BY COUNT(DISTINCT h.ip) DESC")
-    List<Stats> getUniqueStatsWithoutUris(LocalDateTime start, LocalDateTime end);
+    List<HitCount> getUniqueStatsWithoutUris(LocalDateTime start, LocalDateTime end);
 
-    // Получение статистики без учета уникальных IP по временному промежутку без URI
-    @Query(value = "SELECT NEW ru.practicum.model.Stats(h.app, h.uri, COUNT(h.ip)) " +
+    // Получение статистики без учета уникальных IP по полуинтервалу [from, to) без URI
+    @Query(value = "SELECT NEW ru.practicum.model.HitCount(h.appId, h.uriId, COUNT(h.ip)) " +
             "FROM Hit h " +
-            "WHERE h.timestamp BETWEEN ?1 AND ?2 " +
-            "GROUP BY h.app, h.uri " +
-            "ORDER BY COUNT(h.ip) DESC")
-    List<Stats> getNotUniqueStatsWithoutUris(LocalDateTime start, LocalDateTime end);
+            "WHERE h.timestamp >= ?1 AND h.timestamp < ?2 " +
+            "GROUP BY h.appId, h.uriId")
+    List<HitCount> getNotUniqueStatsWithoutUris(LocalDateTime from, LocalDateTime to);
 }
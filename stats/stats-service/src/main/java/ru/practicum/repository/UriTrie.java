@@ -0,0 +1,75 @@
+package ru.practicum.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+// Префиксное дерево известных uri. Шаблон с '*' (любая последовательность символов)
+// сначала сужается до поддерева по префиксу до первой '*', и только его uri сверяются с шаблоном
+class UriTrie {
+    static final char WILDCARD = '*';
+    private final Node root = new Node();
+
+    void add(String uri, int id) {
+        Node node = root;
+        for (int i = 0; i < uri.length(); i++) {
+            node = node.children.computeIfAbsent(uri.charAt(i), c -> new Node());
+        }
+        node.id = id;
+    }
+
+    List<Integer> match(String pattern) {
+        List<Integer> ids = new ArrayList<>();
+        int wildcard = pattern.indexOf(WILDCARD);
+        String prefix = wildcard < 0 ? pattern : pattern.substring(0, wildcard);
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) {
+            return ids;
+        }
+        if (wildcard < 0) {
+            if (node.id != null) {
+                ids.add(node.id);
+            }
+            return ids;
+        }
+        collect(node, new StringBuilder(), toRegex(pattern.substring(wildcard)), ids);
+        return ids;
+    }
+
+    private static void collect(Node node, StringBuilder suffix, Pattern pattern, List<Integer> ids) {
+        if (node.id != null && pattern.matcher(suffix).matches()) {
+            ids.add(node.id);
+        }
+        for (Map.Entry<Character, Node> child : node.children.entrySet()) {
+            suffix.append(child.getKey());
+            collect(child.getValue(), suffix, pattern, ids);
+            suffix.setLength(suffix.length() - 1);
+        }
+    }
+
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int from = 0;
+        for (int i = glob.indexOf(WILDCARD); i >= 0; i = glob.indexOf(WILDCARD, from)) {
+            if (i > from) {
+                regex.append(Pattern.quote(glob.substring(from, i)));
+            }
+            regex.append(".*");
+            from = i + 1;
+        }
+        if (from < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(from)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new ConcurrentHashMap<>();
+        private volatile Integer id;
+    }
+}
@@ -0,0 +1,43 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.repository.HitPartitionRepository;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+// Обслуживание хранилища хитов: секции создаются на days-ahead дней вперёд,
+// данные старше retention-days удаляются целыми секциями
+@Component
+@RequiredArgsConstructor
+public class HitPartitionManager {
+    private final HitPartitionRepository partitionRepository;
+    private final StatsResultCache cache;
+    @Value("${stats.partition.days-ahead}")
+    private int daysAhead;
+    @Value("${stats.retention-days}")
+    private int retentionDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partition.cron}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        if (partitionRepository.isPartitioned()) {
+            Set<LocalDate> existing = partitionRepository.findPartitionDays();
+            for (LocalDate day = today; !day.isAfter(today.plusDays(daysAhead)); day = day.plusDays(1)) {
+                if (!existing.contains(day)) {
+                    partitionRepository.createPartition(day);
+                }
+            }
+        }
+        if (retentionDays > 0) {
+            partitionRepository.deleteBefore(today.minusDays(retentionDays));
+            cache.invalidateAll();
+        }
+    }
+}
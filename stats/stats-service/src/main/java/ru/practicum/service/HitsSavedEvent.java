@@ -0,0 +1,12 @@
+package ru.practicum.service;
+
+import lombok.Value;
+import ru.practicum.model.Hit;
+
+import java.util.List;
+
+// Публикуется при сохранении хитов, слушатели получают его после фиксации транзакции
+@Value
+public class HitsSavedEvent {
+    List<Hit> hits;
+}
@@ -0,0 +1,118 @@
+package ru.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.model.Hit;
+import ru.practicum.model.Stats;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// Кэш результатов /stats. Окно, закрытое дольше late-tolerance назад, больше не меняется
+// и хранится до вытеснения по размеру, открытое окно живёт open-ttl
+@Component
+public class StatsResultCache {
+    private final Cache<Key, List<Stats>> cache;
+    private final Duration lateTolerance;
+
+    public StatsResultCache(MeterRegistry registry,
+                            @Value("${stats.cache.max-size}") long maxSize,
+                            @Value("${stats.cache.open-ttl}") Duration openTtl,
+                            @Value("${stats.cache.late-tolerance}") Duration lateTolerance) {
+        this.lateTolerance = lateTolerance;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new WindowExpiry(openTtl.toNanos()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "stats.results");
+    }
+
+    public List<Stats> get(Key key, Supplier<List<Stats>> loader) {
+        return cache.get(key, k -> List.copyOf(loader.get()));
+    }
+
+    // Хиты старше late-tolerance сбрасывают закэшированные окна, пересекающие промежуток их времени:
+    // одна проверка на ключ, окна между поздними хитами сбрасываются с запасом.
+    // Сброс после фиксации, иначе параллельный запрос успеет закэшировать окно без новых хитов
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        LocalDateTime lateBefore = LocalDateTime.now().minus(lateTolerance);
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (Hit hit : event.getHits()) {
+            LocalDateTime timestamp = hit.getTimestamp();
+            if (timestamp == null || !timestamp.isBefore(lateBefore)) {
+                continue;
+            }
+            if (from == null || timestamp.isBefore(from)) {
+                from = timestamp;
+            }
+            if (to == null || timestamp.isAfter(to)) {
+                to = timestamp;
+            }
+        }
+        if (from != null) {
+            LocalDateTime lateFrom = from;
+            LocalDateTime lateTo = to;
+            cache.asMap().keySet().removeIf(key -> key.overlaps(lateFrom, lateTo));
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private boolean isClosed(Key key) {
+        return key.getEnd().plus(lateTolerance).isBefore(LocalDateTime.now());
+    }
+
+    @lombok.Value
+    public static class Key {
+        LocalDateTime start;
+        LocalDateTime end;
+        List<String> uris;
+        boolean unique;
+        boolean approximate;
+
+        public static Key of(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique, boolean approximate) {
+            return new Key(start, end, uris.stream().distinct().sorted().collect(Collectors.toList()), unique, approximate);
+        }
+
+        private boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return !to.isBefore(start) && !from.isAfter(end);
+        }
+    }
+
+    private class WindowExpiry implements Expiry<Key, List<Stats>> {
+        private final long openTtlNanos;
+
+        WindowExpiry(long openTtlNanos) {
+            this.openTtlNanos = openTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Key key, List<Stats> value, long currentTime) {
+            return isClosed(key) ? Long.MAX_VALUE : openTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(Key key, List<Stats> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Key key, List<Stats> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
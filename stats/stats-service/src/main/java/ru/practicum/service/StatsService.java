@@ -1,6 +1,8 @@
 package ru.practicum.service;
 
 import ru.practicum.HitDto;
+import ru.practicum.UriWindow;
+import ru.practicum.model.HitBatchResult;
 import ru.practicum.model.Stats;
 
 import java.time.LocalDateTime;
@@ -9,7 +11,15 @@ import java.util.List;
 public interface StatsService {
     void save(HitDto hitDto);
 
+    HitBatchResult saveAll(List<HitDto> hitDtos);
+
     List<Stats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris);
 
     List<Stats> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    List<Stats> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris);
+
+    List<Stats> getTopStats(LocalDateTime start, LocalDateTime end, int limit);
+
+    List<Stats> getViews(List<UriWindow> windows, LocalDateTime end, boolean unique);
 }
@@ -2,50 +2,262 @@ package ru.practicum.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.HitDto;
+import ru.practicum.UriWindow;
 import ru.practicum.exception.BadRequestException;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitBatchResult;
+import ru.practicum.model.HitCount;
+import ru.practicum.model.Rollup;
 import ru.practicum.model.Stats;
+import ru.practicum.repository.DictionaryRepository;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.repository.HitSketchRepository;
 import ru.practicum.repository.StatsRepository;
 import ru.practicum.mapper.HitMapper;
+import ru.practicum.sketch.HyperLogLog;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
 public class StatsServiceImpl implements StatsService {
+    private static final Rollup[] ROLLUPS = {Rollup.HOUR, Rollup.MINUTE};
     private final StatsRepository repository;
+    private final HitRollupRepository rollupRepository;
+    private final HitSketchRepository sketchRepository;
+    private final DictionaryRepository dictionary;
+    private final StatsResultCache cache;
+    private final TopHitsTracker topHitsTracker;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
+    // Ключи словарей создаются до транзакции записи, чтобы запрос держал одно соединение из пула
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void save(HitDto hitDto) {
-        repository.save(HitMapper.toHit(hitDto));
+        createDictionaryKeys(List.of(hitDto));
+        transactionTemplate.executeWithoutResult(status -> {
+            Hit hit = repository.save(toHit(hitDto));
+            rollupRepository.add(List.of(hit));
+            sketchRepository.add(List.of(hit));
+            eventPublisher.publishEvent(new HitsSavedEvent(List.of(hit)));
+        });
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public HitBatchResult saveAll(List<HitDto> hitDtos) {
+        createDictionaryKeys(hitDtos);
+        List<Hit> hits = hitDtos.stream()
+                .map(this::toHit)
+                .collect(Collectors.toList());
+        int accepted = transactionTemplate.execute(status -> {
+            int inserted = repository.insertAll(hits);
+            rollupRepository.add(hits);
+            sketchRepository.add(hits);
+            eventPublisher.publishEvent(new HitsSavedEvent(hits));
+            return inserted;
+        });
+        log.debug("Принято {} из {} хитов", accepted, hitDtos.size());
+        return new HitBatchResult(hitDtos.size(), accepted);
     }
 
     @Override
     public List<Stats> getStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
         validateDateOrder(start, end);
-        if (uris.isEmpty()) {
-            return repository.getNotUniqueStatsWithoutUris(start, end);
-        } else {
-            return repository.getNotUniqueStats(start, end, uris);
-        }
+        return cache.get(StatsResultCache.Key.of(start, end, uris, false, false), () -> computeStats(start, end, uris));
     }
 
     @Override
     public List<Stats> getUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
         validateDateOrder(start, end);
+        return cache.get(StatsResultCache.Key.of(start, end, uris, true, false), () -> computeUniqueStats(start, end, uris));
+    }
+
+    @Override
+    public List<Stats> getApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        validateDateOrder(start, end);
+        return cache.get(StatsResultCache.Key.of(start, end, uris, true, true),
+                () -> computeApproximateUniqueStats(start, end, uris));
+    }
+
+    // Полные часы внутри окна берутся из бакетов топа в памяти, а часы старше их хранения -
+    // из часовых агрегатов; неполные часы на краях досчитываются точно
+    @Override
+    public List<Stats> getTopStats(LocalDateTime start, LocalDateTime end, int limit) {
+        validateDateOrder(start, end);
+        if (limit > topHitsTracker.getCapacity()) {
+            throw new BadRequestException("limit must not exceed " + topHitsTracker.getCapacity());
+        }
+        Map<List<Integer>, Long> totals = new HashMap<>();
+        LocalDateTime to = end.plusSeconds(1);
+        LocalDateTime alignedFrom = TopHitsTracker.BUCKET.ceil(start);
+        LocalDateTime alignedTo = TopHitsTracker.BUCKET.floor(to);
+        if (alignedFrom.isBefore(alignedTo)) {
+            LocalDateTime retainedFrom = topHitsTracker.getRetainedFrom();
+            if (alignedFrom.isBefore(retainedFrom)) {
+                LocalDateTime rollupTo = alignedTo.isBefore(retainedFrom) ? alignedTo : retainedFrom;
+                mergeCounts(totals, rollupRepository.sum(TopHitsTracker.BUCKET, alignedFrom, rollupTo, List.of()));
+            }
+            if (retainedFrom.isBefore(alignedTo)) {
+                topHitsTracker.sum(alignedFrom.isAfter(retainedFrom) ? alignedFrom : retainedFrom, alignedTo, totals);
+            }
+            collectStats(totals, start, alignedFrom, List.of(), 1);
+            collectStats(totals, alignedTo, to, List.of(), 1);
+        } else {
+            collectStats(totals, start, to, List.of(), 1);
+        }
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<List<Integer>, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> toStats(entry.getKey().get(0), entry.getKey().get(1), entry.getValue(), null))
+                .collect(Collectors.toList());
+    }
+
+    // У каждого uri своё начало окна при общем конце, повторы uri объединяются по самому раннему началу
+    @Override
+    public List<Stats> getViews(List<UriWindow> windows, LocalDateTime end, boolean unique) {
+        Map<String, LocalDateTime> sinceByUri = new HashMap<>();
+        for (UriWindow window : windows) {
+            validateDateOrder(window.getSince(), end);
+            sinceByUri.merge(window.getUri(), window.getSince(), (a, b) -> a.isBefore(b) ? a : b);
+        }
+        // Окна задаются точными uri: ключи, найденные по шаблонам, не имеют своего окна и отбрасываются
+        Map<Integer, LocalDateTime> sinceByUriId = new HashMap<>();
+        for (Integer uriId : dictionary.findUriIds(sinceByUri.keySet())) {
+            LocalDateTime since = sinceByUri.get(dictionary.getUri(uriId));
+            if (since != null) {
+                sinceByUriId.put(uriId, since);
+            }
+        }
+        return repository.countSince(sinceByUriId, end.plusSeconds(1), unique).stream()
+                .map(count -> toStats(count.getAppId(), count.getUriId(), count.getHits(), null))
+                .sorted(Comparator.comparingLong(Stats::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private List<Stats> computeStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (!uris.isEmpty() && uriIds.isEmpty()) {
+            return List.of();
+        }
+        Map<List<Integer>, Long> totals = new HashMap<>();
+        // Время хитов хранится с точностью до секунды, поэтому [start, end] равен [start, end + 1s)
+        collectStats(totals, start, end.plusSeconds(1), uriIds, 0);
+        List<Stats> stats = new ArrayList<>(totals.size());
+        totals.forEach((key, hits) -> stats.add(toStats(key.get(0), key.get(1), hits, null)));
+        stats.sort(Comparator.comparingLong(Stats::getHits).reversed());
+        return stats;
+    }
+
+    private List<Stats> computeUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        List<HitCount> counts;
         if (uris.isEmpty()) {
-            return repository.getUniqueStatsWithoutUris(start, end);
+            counts = repository.getUniqueStatsWithoutUris(start, end);
+        } else if (uriIds.isEmpty()) {
+            return List.of();
+        } else {
+            counts = repository.getUniqueStats(start, end, uriIds);
+        }
+        return counts.stream()
+                .map(count -> toStats(count.getAppId(), count.getUriId(), count.getHits(), null))
+                .collect(Collectors.toList());
+    }
+
+    // Полные часы объединяются из сохранённых скетчей, неполные часы на краях
+    // досчитываются по исходным хитам в скетч того же формата
+    private List<Stats> computeApproximateUniqueStats(LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<Integer> uriIds = dictionary.findUriIds(uris);
+        if (!uris.isEmpty() && uriIds.isEmpty()) {
+            return List.of();
+        }
+        Map<List<Integer>, HyperLogLog> sketches = new HashMap<>();
+        LocalDateTime to = end.plusSeconds(1);
+        LocalDateTime alignedFrom = HitSketchRepository.BUCKET.ceil(start);
+        LocalDateTime alignedTo = HitSketchRepository.BUCKET.floor(to);
+        if (alignedFrom.isBefore(alignedTo)) {
+            sketchRepository.merge(alignedFrom, alignedTo, uriIds, sketches);
+            addRawHits(sketches, start, alignedFrom, uriIds);
+            addRawHits(sketches, alignedTo, to, uriIds);
         } else {
-            return repository.getUniqueStats(start, end, uris);
+            addRawHits(sketches, start, to, uriIds);
+        }
+        List<Stats> stats = new ArrayList<>(sketches.size());
+        sketches.forEach((key, sketch) ->
+                stats.add(toStats(key.get(0), key.get(1), sketch.estimate(), HyperLogLog.RELATIVE_ERROR)));
+        stats.sort(Comparator.comparingLong(Stats::getHits).reversed());
+        return stats;
+    }
+
+    private void addRawHits(Map<List<Integer>, HyperLogLog> sketches, LocalDateTime from, LocalDateTime to,
+                            List<Integer> uriIds) {
+        if (from.isBefore(to)) {
+            repository.forEachHit(from, to, uriIds, hit -> sketches
+                    .computeIfAbsent(List.of(hit.getAppId(), hit.getUriId()), key -> new HyperLogLog())
+                    .add(hit.getIp()));
+        }
+    }
+
+    // Полные часы берутся из часовых агрегатов, полные минуты на краях - из минутных,
+    // и только остаток короче минуты считается по исходным хитам
+    private void collectStats(Map<List<Integer>, Long> totals, LocalDateTime from, LocalDateTime to,
+                              List<Integer> uriIds, int level) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == ROLLUPS.length) {
+            List<HitCount> raw = uriIds.isEmpty()
+                    ? repository.getNotUniqueStatsWithoutUris(from, to)
+                    : repository.getNotUniqueStats(from, to, uriIds);
+            mergeCounts(totals, raw);
+            return;
+        }
+        Rollup rollup = ROLLUPS[level];
+        LocalDateTime alignedFrom = rollup.ceil(from);
+        LocalDateTime alignedTo = rollup.floor(to);
+        if (!alignedFrom.isBefore(alignedTo)) {
+            collectStats(totals, from, to, uriIds, level + 1);
+            return;
+        }
+        mergeCounts(totals, rollupRepository.sum(rollup, alignedFrom, alignedTo, uriIds));
+        collectStats(totals, from, alignedFrom, uriIds, level + 1);
+        collectStats(totals, alignedTo, to, uriIds, level + 1);
+    }
+
+    private static void mergeCounts(Map<List<Integer>, Long> totals, List<HitCount> counts) {
+        for (HitCount count : counts) {
+            totals.merge(List.of(count.getAppId(), count.getUriId()), count.getHits(), Long::sum);
         }
     }
 
+    private void createDictionaryKeys(List<HitDto> hitDtos) {
+        dictionary.createApps(hitDtos.stream().map(HitDto::getApp).collect(Collectors.toSet()));
+        dictionary.createUris(hitDtos.stream().map(HitDto::getUri).collect(Collectors.toSet()));
+    }
+
+    private Hit toHit(HitDto hitDto) {
+        return HitMapper.toHit(hitDto, dictionary.getAppId(hitDto.getApp()), dictionary.getUriId(hitDto.getUri()));
+    }
+
+    private Stats toStats(int appId, int uriId, long hits, Double relativeError) {
+        return new Stats(dictionary.getApp(appId), dictionary.getUri(uriId), hits, relativeError);
+    }
+
     private void validateDateOrder(LocalDateTime start, LocalDateTime end) {
         if (end.isBefore(start)) {
             throw new BadRequestException("Validation error: ");
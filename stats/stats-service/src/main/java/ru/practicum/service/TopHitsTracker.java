@@ -0,0 +1,86 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.model.Hit;
+import ru.practicum.model.HitCount;
+import ru.practicum.model.Rollup;
+import ru.practicum.repository.HitRollupRepository;
+import ru.practicum.sketch.SpaceSaving;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Самые посещаемые пары app/uri по часовым бакетам за последние retention-hours часов.
+// При старте бакеты восстанавливаются из часовых агрегатов, затем пополняются новыми хитами
+@Slf4j
+@Component
+public class TopHitsTracker {
+    public static final Rollup BUCKET = Rollup.HOUR;
+    private final NavigableMap<LocalDateTime, SpaceSaving<List<Integer>>> buckets = new ConcurrentSkipListMap<>();
+    private final int capacity;
+    private final int retentionHours;
+
+    public TopHitsTracker(HitRollupRepository rollupRepository,
+                          @Value("${stats.top.capacity}") int capacity,
+                          @Value("${stats.top.retention-hours}") int retentionHours) {
+        this.capacity = capacity;
+        this.retentionHours = retentionHours;
+        rollupRepository.findByBucket(BUCKET, getRetainedFrom()).forEach((bucket, counts) -> {
+            SpaceSaving<List<Integer>> summary = bucket(bucket);
+            for (HitCount count : counts) {
+                summary.offer(List.of(count.getAppId(), count.getUriId()), count.getHits());
+            }
+        });
+        log.info("Восстановлено часовых бакетов для топа: {}", buckets.size());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Начало первого часа, за который бакеты гарантированно полны
+    public LocalDateTime getRetainedFrom() {
+        return BUCKET.floor(LocalDateTime.now()).minusHours(retentionHours);
+    }
+
+    // Суммирует оценки бакетов полуинтервала [from, to), границы выровнены по часу
+    public void sum(LocalDateTime from, LocalDateTime to, Map<List<Integer>, Long> totals) {
+        for (SpaceSaving<List<Integer>> summary : buckets.subMap(from, true, to, false).values()) {
+            Map<List<Integer>, Long> counts;
+            synchronized (summary) {
+                counts = summary.getCounts();
+            }
+            counts.forEach((key, hits) -> totals.merge(key, hits, Long::sum));
+        }
+    }
+
+    @TransactionalEventListener
+    public void onHitsSaved(HitsSavedEvent event) {
+        LocalDateTime retainedFrom = getRetainedFrom();
+        for (Hit hit : event.getHits()) {
+            if (hit.getTimestamp() == null || hit.getTimestamp().isBefore(retainedFrom)) {
+                continue;
+            }
+            SpaceSaving<List<Integer>> summary = bucket(BUCKET.floor(hit.getTimestamp()));
+            synchronized (summary) {
+                summary.offer(List.of(hit.getAppId(), hit.getUriId()), 1);
+            }
+        }
+    }
+
+    @Scheduled(cron = "0 0 * * * *")
+    public void evict() {
+        buckets.headMap(getRetainedFrom()).clear();
+    }
+
+    private SpaceSaving<List<Integer>> bucket(LocalDateTime bucket) {
+        return buckets.computeIfAbsent(bucket, key -> new SpaceSaving<>(capacity));
+    }
+}
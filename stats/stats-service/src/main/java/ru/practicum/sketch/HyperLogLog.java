@@ -0,0 +1,124 @@
+package ru.practicum.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog с 2^12 однобайтовыми регистрами (4 КБ): оценка числа уникальных значений
+ * со стандартной относительной ошибкой около 1.6%. Скетчи объединяются поэлементным максимумом.
+ * Пока заполненных регистров мало, скетч сериализуется разреженно: маркер и тройки (индекс, значение).
+ */
+public class HyperLogLog {
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final double RELATIVE_ERROR = 1.04 / Math.sqrt(REGISTERS);
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final byte SPARSE = 1;
+    private static final int SPARSE_ENTRY = 3;
+    private static final int SPARSE_LIMIT = (REGISTERS - 1) / SPARSE_ENTRY - 1;
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length == REGISTERS) {
+            return new HyperLogLog(bytes.clone());
+        }
+        if (bytes.length == 0 || bytes[0] != SPARSE || (bytes.length - 1) % SPARSE_ENTRY != 0) {
+            throw new IllegalArgumentException("Invalid sketch size: " + bytes.length);
+        }
+        byte[] registers = new byte[REGISTERS];
+        for (int i = 1; i < bytes.length; i += SPARSE_ENTRY) {
+            int index = ((bytes[i] & 0xff) << 8) | (bytes[i + 1] & 0xff);
+            if (index >= REGISTERS) {
+                throw new IllegalArgumentException("Invalid sketch register: " + index);
+            }
+            registers[index] = bytes[i + 2];
+        }
+        return new HyperLogLog(registers);
+    }
+
+    public void add(String value) {
+        add(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void add(byte[] value) {
+        long hash = hash(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    // Возвращает true, если изменился хотя бы один регистр
+    public boolean merge(HyperLogLog other) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int filled = 0;
+        for (byte register : registers) {
+            if (register != 0 && ++filled > SPARSE_LIMIT) {
+                return registers.clone();
+            }
+        }
+        byte[] bytes = new byte[1 + filled * SPARSE_ENTRY];
+        bytes[0] = SPARSE;
+        int offset = 1;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                bytes[offset] = (byte) (i >>> 8);
+                bytes[offset + 1] = (byte) i;
+                bytes[offset + 2] = registers[i];
+                offset += SPARSE_ENTRY;
+            }
+        }
+        return bytes;
+    }
+
+    // FNV-1a с финализатором MurmurHash3 для равномерного распределения старших бит
+    private static long hash(byte[] value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
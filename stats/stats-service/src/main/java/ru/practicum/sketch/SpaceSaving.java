@@ -0,0 +1,64 @@
+package ru.practicum.sketch;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Space-Saving: не более capacity счётчиков самых частых элементов потока.
+ * Оценка завышает истинное значение не более чем на сумму весов / capacity.
+ * Не потокобезопасен.
+ */
+public class SpaceSaving<T> {
+    private final int capacity;
+    private final Map<T, Long> counts = new HashMap<>();
+    private final TreeMap<Long, Set<T>> byCount = new TreeMap<>();
+
+    public SpaceSaving(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void offer(T item, long weight) {
+        Long count = counts.get(item);
+        if (count == null) {
+            if (counts.size() < capacity) {
+                count = 0L;
+            } else {
+                // вытесняется элемент с минимальным счётчиком, новый наследует его значение
+                Map.Entry<Long, Set<T>> min = byCount.firstEntry();
+                Iterator<T> iterator = min.getValue().iterator();
+                T evicted = iterator.next();
+                iterator.remove();
+                if (min.getValue().isEmpty()) {
+                    byCount.remove(min.getKey());
+                }
+                counts.remove(evicted);
+                count = min.getKey();
+            }
+        } else {
+            unlink(item, count);
+        }
+        long updated = count + weight;
+        counts.put(item, updated);
+        byCount.computeIfAbsent(updated, key -> new LinkedHashSet<>()).add(item);
+    }
+
+    public Map<T, Long> getCounts() {
+        return Map.copyOf(counts);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void unlink(T item, long count) {
+        Set<T> items = byCount.get(count);
+        items.remove(item);
+        if (items.isEmpty()) {
+            byCount.remove(count);
+        }
+    }
+}
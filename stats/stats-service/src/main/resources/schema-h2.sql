@@ -0,0 +1,15 @@
+DROP SEQUENCE IF EXISTS hits_id_seq;
+
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq;
+
+CREATE TABLE IF NOT EXISTS hits (
+    id BIGINT NOT NULL DEFAULT nextval('hits_id_seq') PRIMARY KEY,
+    app_id INTEGER NOT NULL REFERENCES apps (id),
+    uri_id INTEGER NOT NULL REFERENCES uris (id),
+    ip BYTEA NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_timestamp ON hits (timestamp);
+
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri_id, timestamp);
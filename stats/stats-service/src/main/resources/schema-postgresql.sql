@@ -0,0 +1,19 @@
+DROP SEQUENCE IF EXISTS hits_id_seq;
+
+CREATE SEQUENCE IF NOT EXISTS hits_id_seq;
+
+-- Дневные секции создаются приложением заранее, в секцию по умолчанию попадают
+-- хиты без времени и хиты за дни, для которых секции ещё нет
+CREATE TABLE IF NOT EXISTS hits (
+    id BIGINT NOT NULL DEFAULT nextval('hits_id_seq'),
+    app_id INTEGER NOT NULL REFERENCES apps (id),
+    uri_id INTEGER NOT NULL REFERENCES uris (id),
+    ip BYTEA NOT NULL,
+    timestamp TIMESTAMP WITHOUT TIME ZONE
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS hits_default PARTITION OF hits DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_hits_timestamp ON hits (timestamp);
+
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri_id, timestamp);
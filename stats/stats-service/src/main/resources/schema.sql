@@ -1,10 +1,48 @@
 DROP TABLE IF EXISTS hits;
+DROP TABLE IF EXISTS hits_minute;
+DROP TABLE IF EXISTS hits_hour;
+DROP TABLE IF EXISTS hits_hll;
+DROP TABLE IF EXISTS apps;
+DROP TABLE IF EXISTS uris;
 
-CREATE TABLE IF NOT EXISTS hits (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app VARCHAR(255) NOT NULL,
+CREATE TABLE IF NOT EXISTS apps (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    CONSTRAINT uq_apps_name UNIQUE (name)
+);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     uri VARCHAR(512) NOT NULL,
-    ip  VARCHAR(255)  NOT NULL,
-    timestamp TIMESTAMP WITHOUT TIME ZONE
+    CONSTRAINT uq_uris_uri UNIQUE (uri)
+);
+
+CREATE TABLE IF NOT EXISTS hits_minute (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_hits_minute PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_minute_bucket ON hits_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS hits_hour (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    CONSTRAINT pk_hits_hour PRIMARY KEY (app_id, uri_id, bucket)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_hour_bucket ON hits_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS hits_hll (
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    CONSTRAINT pk_hits_hll PRIMARY KEY (app_id, uri_id, bucket)
+);
 
-);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_hits_hll_bucket ON hits_hll (bucket);